@@ -6,14 +6,13 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.logging.Level;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
 
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.util.Util;
@@ -30,6 +29,9 @@ public class Animation implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
 	private static final double FRAME_RATE = 8;
+	
+	/** The frames and flipped frames of every animation loaded by path, which are shared since they never change. */
+	private static final Map<String, BufferedImage[][]> LOADED = new ConcurrentHashMap<>();
 
 	protected BufferedImage[] frames;
 	protected BufferedImage[] flippedFrames;
@@ -42,18 +44,45 @@ public class Animation implements Serializable {
 	
 	/**
 	 * Loads an animation from a path (not package name).
+	 * The frames are only decoded when the animation is first drawn or measured, so animations can be kept in static
+	 * fields without decoding them when the class is initialized.
 	 * @param path
 	 * 	The path from which to load
-	 * @throws URISyntaxException
 	 */
 	public Animation(String str) {
+		path = str;
+	}
+	
+	/**
+	 * Decode the frames of an animation loaded from a path, if they haven't been already. This is synchronized, like
+	 * <code>getSprite</code>, so that a thread never sees the frames without the flipped frames.
+	 */
+	private synchronized void resolve() {
+		if (frames != null || path == null) {
+			return;
+		}
+		BufferedImage[][] loaded = LOADED.get(path);
+		if (loaded == null) {
+			// not computeIfAbsent, which would block other animations from loading while the frames are decoded
+			loaded = load(path);
+			BufferedImage[][] other = LOADED.putIfAbsent(path, loaded);
+			if (other != null) {
+				loaded = other;
+			}
+		}
+		flippedFrames = loaded[1];
+		frames = loaded[0];
+	}
+	
+	private static BufferedImage[][] load(String str) {
+		Animation animation = new Animation();
 		if (str.endsWith(".png")) {
-			loadImage(Main.getImage(str));
+			animation.loadImage(Assets.getImage(str));
 		} else {
-			loadFolder(Main.getFile(str));
+			animation.loadFolder(str);
 		}
-		computeFlipped();
-		path = str;
+		animation.computeFlipped();
+		return new BufferedImage[][] { animation.frames, animation.flippedFrames };
 	}
 	
 	public Animation(BufferedImage image) {
@@ -69,32 +98,21 @@ public class Animation implements Serializable {
 		set(other);
 	}
 
-	private void loadFolder(File folder) {
+	private void loadFolder(String path) {
 
+		File folder = Main.getFile(path);
 		if (!folder.isDirectory()) {
 			return;
 		}
 
-		File[] frames = folder.listFiles();
-		Arrays.sort(frames, new Comparator<File>() {
-			@Override
-			public int compare(File f1, File f2) {
-				return f1.getName().compareTo(f2.getName());
-			}
-		});
-
 		ArrayList<BufferedImage> tempFrames = new ArrayList<>();
-		for (int i = 0; i < frames.length; i++) {
-
-			if (!frames[i].getName().endsWith(".png")) {
+		for (String frame : Assets.expand(path)) {
+			BufferedImage image = Assets.getImage(frame);
+			if (image == null) {
+				Debug.logger.severe("Animation frame " + frame + " could not be loaded.");
 				continue;
 			}
-			
-			try {
-				tempFrames.add(ImageIO.read(frames[i]));
-			} catch (IOException e) {
-				Debug.logger.log(Level.SEVERE, "Animation frame " + frames[i].getName() + " could not be loaded.", e);
-			}
+			tempFrames.add(image);
 		}
 
 		if (tempFrames.size() == 0) {
@@ -110,6 +128,9 @@ public class Animation implements Serializable {
 
 	}
 	
+	private Animation() {
+	}
+	
 	protected Animation(int numFrames) {
 		frames = new BufferedImage[numFrames];
 	}
@@ -161,9 +182,11 @@ public class Animation implements Serializable {
 	}
 
 	private void set(Animation animation) {
-		path = animation.path;
-		frames = animation.frames;
-		flippedFrames = animation.flippedFrames;
+		synchronized (animation) {
+			path = animation.path;
+			frames = animation.frames;
+			flippedFrames = animation.flippedFrames;
+		}
 		hasCycled = animation.hasCycled;
 		currentTime = animation.currentTime;
 		setFrameRate(animation.getFrameRate());
@@ -179,6 +202,7 @@ public class Animation implements Serializable {
 	 * @return the current image
 	 */
 	public synchronized BufferedImage getSprite(double timeDelta) {
+		resolve();
 		hasCycled |= (currentTime + timeDelta) >= (frames.length / getFrameRate());
 		currentTime = (currentTime + timeDelta) % (frames.length / getFrameRate());		
 		return (flipped ? flippedFrames : frames)[getFrameIndex()];
@@ -197,6 +221,7 @@ public class Animation implements Serializable {
 	
 	@Override
 	public String toString() {
+		resolve();
 		return "Animation{n: " + frames.length + ", i: " + getFrameIndex() + "}";
 	}
 	
@@ -217,6 +242,7 @@ public class Animation implements Serializable {
 	 * 	The new rotated animation.
 	 */
 	public Animation getRotated(Vector dir) {
+		resolve();
 		Animation other = new Animation(frames.length);
 		for (int i = 0; i < frames.length; i++) {
 			other.frames[i] = Util.getRotated(frames[i], dir);
@@ -234,10 +260,12 @@ public class Animation implements Serializable {
 	}
 	
 	public int getWidth() {
+		resolve();
 		return frames[0].getWidth();
 	}
 	
 	public int getHeight() {
+		resolve();
 		return frames[0].getHeight();
 	}
 	
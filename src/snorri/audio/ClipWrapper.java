@@ -14,13 +14,19 @@ public class ClipWrapper implements Serializable {
 	 */
 	private static final long serialVersionUID = 1L;
 	private String path;
-	private Clip clip;
+	/** Opened the first time it is played, since most sounds of most entities never are. */
+	private transient Clip clip;
+	private transient boolean opened;
 	
 	public ClipWrapper(String path) {
 		set(path);
 	}
 	
-	public Clip getClip() {
+	public synchronized Clip getClip() {
+		if (!opened) {
+			clip = Audio.getClip(path);
+			opened = true;
+		}
 		return clip;
 	}
 	
@@ -35,7 +41,6 @@ public class ClipWrapper implements Serializable {
 	
 	private void set(String path) {
 		this.path = path;
-		clip = Audio.getClip(path);
 	}
 	
 }
@@ -54,7 +54,8 @@ public class CircleCollider extends Collider {
 		}
 		Vector rel = pos.copy().sub_(g.getFocus().getPos());
 		gr.setColor(BORDER_COLOR);
-		gr.drawOval(rel.getX() - r + g.getBounds().width / 2, rel.getY() - r + g.getBounds().height / 2, 2 * r, 2 * r);
+		Vector center = g.getCenter(gr);
+		gr.drawOval(rel.getX() - r + center.getX(), rel.getY() - r + center.getY(), 2 * r, 2 * r);
 		gr.setColor(Color.BLACK);
 	}
 
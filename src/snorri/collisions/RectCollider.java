@@ -76,8 +76,9 @@ public class RectCollider extends Collider {
 		}
 		Vector rel = pos.copy().sub_(g.getFocus().getPos());
 		Rectangle rect = getShape();
-		int x = (int) (rel.getX() + g.getCenter().getX() - rect.getWidth() / 2);
-		int y = (int) (rel.getY() + g.getCenter().getY() - rect.getHeight() / 2);
+		Vector center = g.getCenter(gr);
+		int x = (int) (rel.getX() + center.getX() - rect.getWidth() / 2);
+		int y = (int) (rel.getY() + center.getY() - rect.getHeight() / 2);
 		gr.setColor(BORDER_COLOR);
 		gr.drawRect(x, y, (int) rect.getWidth(), (int) rect.getHeight());
 		gr.setColor(Color.BLACK);
@@ -5,27 +5,33 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.util.Util;
 
+/** Portraits shown beside dialog, which are decoded the first time each is shown. */
 public class Portraits {
 
-	private static Map<String, Image> portraits = new HashMap<>();
+	private static final String DIR = "/textures/portraits";
+
+	/** The path of each portrait by name, with the empty box under <code>null</code>. */
+	private static Map<String, String> portraits = new HashMap<>();
 	
 	static {
-		portraits.put(null, Main.getImage("/textures/portraits/box.png"));
-		for (File f : Main.getFile("/textures/portraits").listFiles()) {
-			portraits.put(Util.removeExtension(f.getName()), Main.getImage(f));
+		portraits.put(null, DIR + "/box.png");
+		for (File f : Main.getFile(DIR).listFiles()) {
+			portraits.put(Util.removeExtension(f.getName()), DIR + "/" + f.getName());
 		}
 	}
 	
 	public static void load() {
-		Debug.logger.info(portraits.entrySet().size() + " portraits loaded.");
+		Debug.logger.info(portraits.entrySet().size() + " portraits found.");
 	}
 	
 	public static Image get(String name) {
-		return portraits.get(name);
+		String path = portraits.get(name);
+		return path == null ? null : Assets.getImage(path);
 	}
 	
 }
@@ -1,44 +1,28 @@
 package snorri.effects;
 
-import java.awt.image.Kernel;
 import java.awt.image.BufferedImage;
-import java.awt.image.ConvolveOp;
-import java.awt.Graphics;
+import java.util.stream.IntStream;
 
 /**
  * Blur filter code taken from the internet
  * @author Kas Thomas
  * @see http://asserttrue.blogspot.com/2010/08/implementing-smart-blur-in-java.html
+ *
+ * The filter works directly on the <code>int[]</code> pixels of the image. The 9x9 blur is a separable sliding box
+ * blur, and the 5x5 RMS error of each region is read off summed-area tables, so each pass is linear in the number of
+ * pixels. Rows are processed in parallel.
+ *
+ * The blur is the same as the old <code>ConvolveOp</code> version's, which blurred a copy of the image drawn with
+ * <code>Graphics.drawImage</code>. Drawing premultiplies and unpremultiplies translucent pixels, so
+ * <code>roundTripAlpha</code> does the same, with the same rounding, before blurring. The RMS error is summed in a
+ * different order, so the odd pixel whose RMS lands on a rounding boundary can come out one off.
  */
 
 public class SmartBlurFilter {
 
 	private static final double SENSITIVITY = 10;
 	private static final int REGION_SIZE = 5;
-
-	float[] kernelArray = {
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1, 
-		1, 1, 1, 1, 1, 1, 1, 1, 1
-	};
-
-	Kernel kernel = new Kernel(9, 9, normalizeKernel(kernelArray));
-
-	float[] normalizeKernel(float[] ar) {
-		int n = 0;
-		for (int i = 0; i < ar.length; i++)
-			n += ar[i];
-		for (int i = 0; i < ar.length; i++)
-			ar[i] /= n;
-
-		return ar;
-	}
+	private static final int KERNEL_SIZE = 9;
 
 	public double lerp(double a, double b, double amt) {
 		return a + amt * (b - a);
@@ -52,45 +36,6 @@ public class SmartBlurFilter {
 		return a / cutoff;
 	}
 
-	public double rmsError(int[] pixels) {
-
-		double ave = 0;
-
-		for (int i = 0; i < pixels.length; i++)
-			ave += (pixels[i] >> 8) & 255;
-
-		ave /= pixels.length;
-
-		double diff = 0;
-		double accumulator = 0;
-
-		for (int i = 0; i < pixels.length; i++) {
-			diff = ((pixels[i] >> 8) & 255) - ave;
-			diff *= diff;
-			accumulator += diff;
-		}
-
-		double rms = accumulator / pixels.length;
-
-		rms = Math.sqrt(rms);
-
-		return rms;
-	}
-
-	int[] getSample(BufferedImage image, int x, int y, int size) {
-
-		int[] pixels = {};
-
-		try {
-			BufferedImage subimage = image.getSubimage(x, y, size, size);
-			pixels = subimage.getRGB(0, 0, size, size, null, 0, size);
-		} catch (Exception e) {
-			// will arrive here if we requested
-			// pixels outside the image bounds
-		}
-		return pixels;
-	}
-
 	int lerpPixel(int oldpixel, int newpixel, double amt) {
 
 		int oldRed = (oldpixel >> 16) & 255;
@@ -108,53 +53,158 @@ public class SmartBlurFilter {
 		return (red << 16) | (green << 8) | blue;
 	}
 
-	int[] blurImage(BufferedImage image, int[] orig, int[] blur, double sensitivity) {
+	/**
+	 * Box blur each channel of pixels with a KERNEL_SIZE x KERNEL_SIZE window.
+	 *
+	 * Pixels closer than KERNEL_SIZE / 2 to the edge are copied unchanged, like <code>ConvolveOp.EDGE_NO_OP</code>.
+	 */
+	int[] boxBlur(int[] pixels, int w, int h) {
+
+		int r = KERNEL_SIZE / 2;
+		int[] blur = pixels.clone();
+		if (w < KERNEL_SIZE || h < KERNEL_SIZE) {
+			return blur;
+		}
 
-		int newPixel = 0;
-		double amt = 0;
-		int size = REGION_SIZE;
+		// horizontal pass: sums of each channel over a sliding row window
+		int[][] rowSums = new int[4][w * h];
+		IntStream.range(0, h).parallel().forEach(y -> {
+			int row = y * w;
+			for (int c = 0; c < 4; c++) {
+				int shift = 8 * c;
+				int[] sums = rowSums[c];
+				int sum = 0;
+				for (int x = 0; x < KERNEL_SIZE; x++) {
+					sum += (pixels[row + x] >>> shift) & 255;
+				}
+				sums[row + r] = sum;
+				for (int x = r + 1; x < w - r; x++) {
+					sum += ((pixels[row + x + r] >>> shift) & 255) - ((pixels[row + x - r - 1] >>> shift) & 255);
+					sums[row + x] = sum;
+				}
+			}
+		});
+
+		// vertical pass: the sliding sum of the row sums is the full window sum
+		float norm = 1f / (KERNEL_SIZE * KERNEL_SIZE);
+		IntStream.range(r, w - r).parallel().forEach(x -> {
+			int[] sum = new int[4];
+			for (int c = 0; c < 4; c++) {
+				for (int y = 0; y < KERNEL_SIZE; y++) {
+					sum[c] += rowSums[c][y * w + x];
+				}
+			}
+			for (int y = r; y < h - r; y++) {
+				if (y > r) {
+					for (int c = 0; c < 4; c++) {
+						sum[c] += rowSums[c][(y + r) * w + x] - rowSums[c][(y - r - 1) * w + x];
+					}
+				}
+				int pixel = 0;
+				for (int c = 0; c < 4; c++) {
+					pixel |= toChannel(sum[c] * norm) << (8 * c);
+				}
+				blur[y * w + x] = pixel;
+			}
+		});
+
+		return blur;
+	}
+
+	/**
+	 * Premultiply and unpremultiply each translucent pixel, which changes its color by the rounding, and makes fully
+	 * transparent pixels transparent black. This is what drawing the image onto a transparent one did.
+	 */
+	static int[] roundTripAlpha(int[] pixels) {
+		int[] out = new int[pixels.length];
+		IntStream.range(0, pixels.length).parallel().forEach(i -> {
+			int a = pixels[i] >>> 24;
+			if (a == 255) {
+				out[i] = pixels[i];
+			} else if (a != 0) {
+				int pixel = a << 24;
+				for (int shift = 0; shift < 24; shift += 8) {
+					pixel |= div8(mul8(a, (pixels[i] >> shift) & 255), a) << shift;
+				}
+				out[i] = pixel;
+			}
+		});
+		return out;
+	}
 
-		for (int i = 0; i < orig.length; i++) {
-			int w = image.getWidth();
-			int[] pix = getSample(image, i % w, i / w, size);
-			if (pix.length == 0)
-				continue;
+	/** <code>a * b / 255</code>, rounded like Java2D's <code>mul8table</code>. */
+	private static int mul8(int a, int b) {
+		long inc = 0x10101L * a;
+		return (int) ((b * inc + (1 << 23)) >>> 24);
+	}
 
-			amt = getLerpAmount(rmsError(pix), sensitivity);
-			newPixel = lerpPixel(blur[i], orig[i], amt);
-			orig[i] = newPixel;
+	/** <code>b * 255 / a</code>, rounded like Java2D's <code>div8table</code>. */
+	private static int div8(int b, int a) {
+		if (b >= a) {
+			return 255;
 		}
+		long inc = (0xff000000L + a / 2) / a;
+		return (int) (((1 << 23) + b * inc) >>> 24);
+	}
 
-		return orig;
+	/** Channel values are truncated, which is what <code>ConvolveOp</code> did. */
+	private static int toChannel(float value) {
+		return Math.min(255, (int) value);
 	}
 
-	public BufferedImage filter(BufferedImage image) {
+	int[] blurImage(int[] orig, int[] blur, int w, int h, double sensitivity) {
+
+		int size = REGION_SIZE;
+		int n = size * size;
+
+		// summed-area tables of the green channel of the blurred image and of its square
+		int stride = w + 1;
+		long[] sat = new long[stride * (h + 1)];
+		long[] satSquared = new long[stride * (h + 1)];
+		for (int y = 0; y < h; y++) {
+			long rowSum = 0, rowSumSquared = 0;
+			for (int x = 0; x < w; x++) {
+				long g = (blur[y * w + x] >> 8) & 255;
+				rowSum += g;
+				rowSumSquared += g * g;
+				sat[(y + 1) * stride + x + 1] = sat[y * stride + x + 1] + rowSum;
+				satSquared[(y + 1) * stride + x + 1] = satSquared[y * stride + x + 1] + rowSumSquared;
+			}
+		}
 
-		ConvolveOp convolver = new ConvolveOp(kernel, ConvolveOp.EDGE_NO_OP, null);
+		int[] out = orig.clone();
+		// regions are anchored at their top-left pixel; pixels whose region leaves the image are unchanged
+		IntStream.range(0, h - size + 1).parallel().forEach(y -> {
+			for (int x = 0; x < w - size + 1; x++) {
+				int a = y * stride + x, b = a + size, c = a + size * stride, d = c + size;
+				long sum = sat[d] - sat[b] - sat[c] + sat[a];
+				long sumSquared = satSquared[d] - satSquared[b] - satSquared[c] + satSquared[a];
+				double rms = Math.sqrt((double) (n * sumSquared - sum * sum) / (n * n));
+				double amt = getLerpAmount(rms, sensitivity);
+				int i = y * w + x;
+				out[i] = lerpPixel(blur[i], orig[i], amt);
+			}
+		});
+
+		return out;
+	}
 
-		// clone image into target
-		BufferedImage target = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-		Graphics g = target.createGraphics();
-		g.drawImage(image, 0, 0, null);
-		g.dispose();
+	public BufferedImage filter(BufferedImage image) {
 
-		int w = target.getWidth();
-		int h = target.getHeight();
+		int w = image.getWidth();
+		int h = image.getHeight();
 
 		// get source pixels
 		int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
 
-		// blur the cloned image
-		target = convolver.filter(target, image);
-
-		// get the blurred pixels
-		int[] blurryPixels = target.getRGB(0, 0, w, h, null, 0, w);
+		// blur the pixels
+		int[] blurryPixels = boxBlur(image.getColorModel().hasAlpha() ? roundTripAlpha(pixels) : pixels, w, h);
 
 		// go thru the image and interpolate values
-		pixels = blurImage(image, pixels, blurryPixels, SENSITIVITY);
+		pixels = blurImage(pixels, blurryPixels, w, h, SENSITIVITY);
 
 		// replace original pixels with new ones
 		image.setRGB(0, 0, w, h, pixels, 0, w);
 		return image;
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,9 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.ai.AIAgent;
 import snorri.ai.AIMode;
 import snorri.animations.Animation;
@@ -84,5 +88,17 @@ public abstract class AIUnit extends Unit implements AIAgent {
 	public AIMode getDefaultMode() {
 		return AIMode.TURRET;
 	}
+	
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		out.writeUTF(mode.name());
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		mode = AIMode.valueOf(in.readUTF());
+	}
 
 }
@@ -1,5 +1,9 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.animations.Animation;
 import snorri.events.CastEvent.Caster;
 import snorri.grammar.ChartParser;
@@ -58,6 +62,18 @@ public abstract class BossAIUnit extends AIUnit implements Caster {
 		return lexicon;
 	}
 	
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		EntityLayerFormat.writeLexicon(out, lexicon);
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		EntityLayerFormat.readLexicon(in, lexicon);
+	}
+	
 	@Override
 	public ManaManager getMana() {
 		if (getInventory() != null) {
@@ -1,5 +1,9 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.collisions.Collider;
 import snorri.world.Vector;
 import snorri.world.World;
@@ -43,6 +47,20 @@ public abstract class Despawner extends Entity {
 	public boolean isStaticObject() {
 		return !despawnable;
 	}
+	
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		out.writeBoolean(despawnable);
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		if (in.readBoolean() != despawnable) {
+			setDespawnable(!despawnable);
+		}
+	}
 
 	@Override
 	public void update(World world, double deltaTime) {
@@ -1,5 +1,9 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.events.CollisionEvent;
 import snorri.inventory.Droppable;
 import snorri.inventory.Item;
@@ -12,9 +16,14 @@ public class Drop extends Detector {
 	
 	private static final long serialVersionUID = 1L;
 	
-	private final Droppable prize;
+	private Droppable prize;
 
 	
+	/** Create a drop without a prize, to be read from an entity.layer file. */
+	Drop(Vector pos) {
+		this(pos, (Droppable) null);
+	}
+	
 	public Drop(Vector pos, Droppable prize) {
 		super(pos, 15);
 		this.prize = prize;
@@ -51,6 +60,32 @@ public class Drop extends Detector {
 		return prize.toString();
 	}
 
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		// Write items by type, since their names include nicknames.
+		EntityLayerFormat.writeString(out, prize instanceof Item ? ((Item) prize).getType().toString() : prize == null ? null : prize.toString());
+		EntityLayerFormat.writeString(out, (prize instanceof Item && ((Item) prize).getSpell() != null) ? ((Item) prize).getSpell().getOrthography() : null);
+		EntityLayerFormat.writeString(out, prize instanceof Item ? ((Item) prize).getNickname() : null);
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		String prize = EntityLayerFormat.readString(in);
+		String spell = EntityLayerFormat.readString(in);
+		if (prize != null) {
+			this.prize = spell == null ? Droppable.fromString(prize) : Droppable.fromStringWithSpell(prize, spell);
+			if (this.prize != null) {
+				animation = this.prize.getAnimation();
+			}
+		}
+		String nickname = EntityLayerFormat.readString(in);
+		if (this.prize instanceof Item) {
+			((Item) this.prize).setNickname(nickname);
+		}
+	}
+
 	@Override
 	public DialogMap prepareDialogMap() {
 		DialogMap inputs = super.prepareDialogMap();
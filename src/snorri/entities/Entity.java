@@ -3,6 +3,9 @@ package snorri.entities;
 import java.awt.Graphics;
 import java.awt.Shape;
 import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.util.logging.Level;
@@ -258,7 +261,8 @@ public class Entity implements Nominal, Serializable, Comparable<Entity>, Clonea
 		}
 		
 		Vector rel = pos.sub(window.getCenterObject().getPos());
-		gr.drawImage(sprite, rel.getX() + (window.getBounds().width - sprite.getWidth()) / 2, rel.getY() + (window.getBounds().height - sprite.getHeight()) / 2, sprite.getWidth(null), sprite.getHeight(null), null);
+		Vector dim = window.getDimensions(gr);
+		gr.drawImage(sprite, rel.getX() + (dim.getX() - sprite.getWidth()) / 2, rel.getY() + (dim.getY() - sprite.getHeight()) / 2, sprite.getWidth(null), sprite.getHeight(null), null);
 	}
 	
 	private boolean inInteractRange(FocusedWindow<?> g) {
@@ -398,6 +402,10 @@ public class Entity implements Nominal, Serializable, Comparable<Entity>, Clonea
 	
 	protected void onSafeDelete(World world) {
 	}
+	
+	public boolean isDeleted() {
+		return deleted;
+	}
 
 	public void onExplosion(CollisionEvent e) {
 	}
@@ -505,4 +513,31 @@ public class Entity implements Nominal, Serializable, Comparable<Entity>, Clonea
 		setTag(tag.isEmpty() ? null : tag);
 	}
 	
+	/**
+	 * Write the state that the position constructor of this entity doesn't restore, for entity.layer files. The
+	 * position and tag are written separately.
+	 * 
+	 * Subclasses should write their properties after calling this. A property added at the end of a class with no
+	 * saved subclasses is read as its default from older files, as is one added to <code>writeLateProperties</code>;
+	 * any other change to what is written needs a new <code>EntityLayerFormat.VERSION</code>.
+	 * @see EntityLayerFormat
+	 */
+	protected void writeProperties(DataOutput out) throws IOException {
+	}
+	
+	/** Read back the properties written by <code>writeProperties</code>. */
+	protected void readProperties(DataInput in) throws IOException {
+	}
+	
+	/**
+	 * Write properties added after those of subclasses were laid out. These come after the properties of every
+	 * subclass, so records written before they existed end first, and they are read as their defaults.
+	 */
+	protected void writeLateProperties(DataOutput out) throws IOException {
+	}
+	
+	/** Read back the properties written by <code>writeLateProperties</code>. */
+	protected void readLateProperties(DataInput in) throws IOException {
+	}
+	
 }
@@ -0,0 +1,71 @@
+package snorri.entities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.logging.Level;
+
+import snorri.grammar.DefaultLexicon;
+import snorri.inventory.RandomDrop;
+import snorri.main.Debug;
+
+/**
+ * Converts entity.layer files written with Java serialization to the format in <code>EntityLayerFormat</code>.
+ *
+ * Run with the world directories to convert, or with none to convert every world in <code>worlds</code>. A file is
+ * only replaced once its conversion has been read back with the same number of entities. Files with entities of
+ * classes that no longer exist are left alone, since converting them would drop those entities.
+ */
+public class EntityLayerConverter {
+
+	public static void main(String[] args) {
+		DefaultLexicon.load();
+		RandomDrop.load();
+
+		File[] worlds;
+		if (args.length == 0) {
+			worlds = new File("worlds").listFiles(File::isDirectory);
+		} else {
+			worlds = new File[args.length];
+			for (int i = 0; i < args.length; i++) {
+				worlds[i] = new File(args[i]);
+			}
+		}
+
+		int converted = 0;
+		for (File world : worlds) {
+			File file = new File(world, "entity.layer");
+			try {
+				if (convert(file)) {
+					converted++;
+				}
+			} catch (IOException e) {
+				Debug.logger.log(Level.SEVERE, "Could not convert " + file + ".", e);
+			}
+		}
+		Debug.logger.info("Converted " + converted + " of " + worlds.length + " entity layers.");
+	}
+
+	/** @return true if the file was converted, or false if it didn't need to be */
+	public static boolean convert(File file) throws IOException {
+		if (!file.exists() || !EntityLayerFormat.isLegacy(file)) {
+			return false;
+		}
+
+		List<Entity> entities = EntityLayerFormat.read(file, true);
+		File tmp = new File(file.getPath() + ".tmp");
+		EntityLayerFormat.write(tmp, entities);
+		int read = EntityLayerFormat.read(tmp, true).size();
+		if (read != entities.size()) {
+			Files.delete(tmp.toPath());
+			throw new IOException("Converted " + file + " has " + read + " entities rather than " + entities.size() + ".");
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Debug.logger.info("Converted " + file + " with " + entities.size() + " entities.");
+		return true;
+	}
+
+}
@@ -0,0 +1,319 @@
+package snorri.entities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+import snorri.grammar.DefaultLexicon;
+import snorri.grammar.Lexicon;
+import snorri.main.Debug;
+import snorri.world.Vector;
+
+/**
+ * Reads and writes entity.layer files, and the entity sections of region files.
+ *
+ * A file starts with a header: the magic number, the format version, the number of entities, the length of the body,
+ * and a CRC32 checksum of the body. Each entity in the body is a record of its type id in
+ * <code>SpawnableRegistry.SAVED</code>, its position, its tag, and a block of properties written by
+ * <code>Entity.writeProperties</code>. Entities are rebuilt with their position constructors, so animations, colliders
+ * and sounds come from the class rather than from the file.
+ *
+ * Entities of classes that can't be rebuilt from a position are written with Java serialization instead, under the
+ * type id <code>SERIALIZED</code>.
+ *
+ * Files written before the header existed are streams of serialized entities. They can still be read: they start
+ * with the serialization magic number rather than this one.
+ *
+ * Region files hold a block of records for each chunk, written by <code>encode</code> without the header, since the
+ * region file has its own checksums.
+ */
+public class EntityLayerFormat {
+
+	static final int MAGIC = 0x454E5459; // "ENTY"
+	static final int VERSION = 1;
+	static final int SERIALIZED = 0xFFFF;
+
+	private static final int HEADER_SIZE = 5 * Integer.BYTES;
+	private static final short LEGACY_MAGIC = (short) 0xACED;
+
+	private EntityLayerFormat() {
+	}
+
+	static List<Entity> read(File file) throws IOException {
+		return read(file, false);
+	}
+
+	/**
+	 * @param strict
+	 *            whether to fail on entities of classes that no longer exist, rather than skipping them
+	 */
+	static List<Entity> read(File file, boolean strict) throws IOException {
+		return read(Files.readAllBytes(file.toPath()), file.getPath(), strict);
+	}
+
+	/**
+	 * Read a whole entity layer file's contents, like one packed in a world bundle.
+	 * @param source
+	 * 	where the bytes came from, for error messages
+	 */
+	public static List<Entity> read(byte[] bytes, String source) throws IOException {
+		return read(bytes, source, false);
+	}
+
+	private static List<Entity> read(byte[] bytes, String source, boolean strict) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (isLegacy(bytes)) {
+			return readLegacy(source, bytes, strict);
+		}
+		if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException(source + " is not an entity layer.");
+		}
+
+		int version = buffer.getInt();
+		if (version > VERSION) {
+			throw new IOException(source + " has entity layer version " + version + ", newer than " + VERSION + ".");
+		}
+		int count = buffer.getInt();
+		int length = buffer.getInt();
+		int checksum = buffer.getInt();
+		if (buffer.remaining() < length) {
+			throw new IOException(source + " is truncated.");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes, HEADER_SIZE, length);
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(source + " failed its checksum.");
+		}
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_SIZE, length));
+		return readEntities(source, in, count, strict);
+	}
+
+	private static List<Entity> readEntities(String source, DataInputStream in, int count, boolean strict)
+			throws IOException {
+		List<Entity> entities = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Entity e = readEntity(source, in, strict);
+			if (e != null) {
+				entities.add(e);
+			}
+		}
+		return entities;
+	}
+
+	/**
+	 * Read a block written by <code>encode</code>.
+	 * @param source
+	 * 	where the block came from, for error messages
+	 */
+	public static List<Entity> decode(byte[] bytes, String source) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		return readEntities(source, in, in.readInt(), false);
+	}
+
+	/** Read one record. Records are length-prefixed, so an entity that fails to load doesn't affect the next one. */
+	private static Entity readEntity(String source, DataInputStream in, boolean strict) throws IOException {
+		int id = in.readUnsignedShort();
+		if (id == SERIALIZED) {
+			byte[] block = readBlock(in);
+			try (ObjectInputStream object = new ObjectInputStream(new ByteArrayInputStream(block))) {
+				return (Entity) object.readObject();
+			} catch (ClassNotFoundException | ClassCastException e) {
+				if (strict) {
+					throw new IOException("Could not load serialized entity in " + source + ".", e);
+				}
+				Debug.logger.log(Level.SEVERE, "Could not load serialized entity in " + source + ".", e);
+				return null;
+			}
+		}
+
+		Vector pos = new Vector(in.readDouble(), in.readDouble());
+		String tag = readString(in);
+		byte[] block = readBlock(in);
+		Class<? extends Entity> c = SpawnableRegistry.getSaved(id);
+		if (c == null) {
+			if (strict) {
+				throw new IOException("Unknown entity type " + id + " in " + source + ".");
+			}
+			Debug.logger.severe("Unknown entity type " + id + " in " + source + ".");
+			return null;
+		}
+
+		Entity e;
+		try {
+			Constructor<? extends Entity> constructor = c.getDeclaredConstructor(Vector.class);
+			constructor.setAccessible(true);
+			e = constructor.newInstance(pos);
+		} catch (ReflectiveOperationException | SecurityException ex) {
+			Debug.logger.log(Level.SEVERE, "Could not create " + c.getSimpleName() + " from " + source + ".", ex);
+			return null;
+		}
+		// The tag is registered with triggers when the entity is inserted.
+		e.tag = tag;
+		DataInputStream properties = new DataInputStream(new ByteArrayInputStream(block));
+		try {
+			e.readProperties(properties);
+			e.readLateProperties(properties);
+		} catch (EOFException ex) {
+			// Written before some properties existed, which keep their defaults.
+		}
+		return e;
+	}
+
+	static boolean isLegacy(File file) throws IOException {
+		return isLegacy(Files.readAllBytes(file.toPath()));
+	}
+
+	private static boolean isLegacy(byte[] bytes) {
+		return bytes.length >= Short.BYTES && ByteBuffer.wrap(bytes).getShort(0) == LEGACY_MAGIC;
+	}
+
+	private static List<Entity> readLegacy(String source, byte[] bytes, boolean strict) throws IOException {
+		List<Entity> entities = new ArrayList<>();
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			while (true) {
+				entities.add((Entity) in.readObject());
+			}
+		} catch (EOFException e) {
+			// The stream has no count, so it ends at the end of the file.
+		} catch (ClassNotFoundException e) {
+			if (strict) {
+				throw new IOException(source + " has an entity of a removed class.", e);
+			}
+			Debug.logger.log(Level.SEVERE, "Stopped loading " + source + " at an entity of a removed class.", e);
+		}
+		return entities;
+	}
+
+	static void write(File file, Collection<Entity> entities) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		writeEntities(new DataOutputStream(body), entities);
+
+		CRC32 crc = new CRC32();
+		crc.update(body.toByteArray());
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(entities.size()).putInt(body.size()).putInt((int) crc.getValue());
+
+		try (OutputStream stream = new FileOutputStream(file)) {
+			stream.write(header.array());
+			body.writeTo(stream);
+		}
+	}
+
+	private static void writeEntities(DataOutputStream out, Collection<Entity> entities) throws IOException {
+		for (Entity e : entities) {
+			writeEntity(out, e);
+		}
+		out.flush();
+	}
+
+	/** @return the records for some entities, preceded by how many there are */
+	public static byte[] encode(Collection<Entity> entities) throws IOException {
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(block);
+		out.writeInt(entities.size());
+		writeEntities(out, entities);
+		return block.toByteArray();
+	}
+
+	/**
+	 * Join two blocks written by <code>encode</code>, without reading their records.
+	 * @return a block with the records of both
+	 */
+	public static byte[] concat(byte[] first, byte[] second) throws IOException {
+		if (first.length < Integer.BYTES || second.length < Integer.BYTES) {
+			throw new IOException("Entity blocks of " + first.length + " and " + second.length + " bytes are too short.");
+		}
+		ByteBuffer a = ByteBuffer.wrap(first);
+		ByteBuffer b = ByteBuffer.wrap(second);
+		ByteBuffer joined = ByteBuffer.allocate(first.length + second.length - Integer.BYTES);
+		joined.putInt(a.getInt() + b.getInt());
+		joined.put(a).put(b);
+		return joined.array();
+	}
+
+	private static void writeEntity(DataOutputStream out, Entity e) throws IOException {
+		int id = SpawnableRegistry.getSavedId(e.getClass());
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		if (id < 0) {
+			try (ObjectOutputStream object = new ObjectOutputStream(block)) {
+				object.writeObject(e);
+			}
+			out.writeShort(SERIALIZED);
+			writeBlock(out, block);
+			return;
+		}
+
+		out.writeShort(id);
+		out.writeDouble(e.getPos().x);
+		out.writeDouble(e.getPos().y);
+		writeString(out, e.getTag());
+		DataOutputStream properties = new DataOutputStream(block);
+		e.writeProperties(properties);
+		e.writeLateProperties(properties);
+		properties.flush();
+		writeBlock(out, block);
+	}
+
+	private static byte[] readBlock(DataInput in) throws IOException {
+		byte[] block = new byte[in.readInt()];
+		in.readFully(block);
+		return block;
+	}
+
+	private static void writeBlock(DataOutput out, ByteArrayOutputStream block) throws IOException {
+		out.writeInt(block.size());
+		out.write(block.toByteArray());
+	}
+
+	/** Write a string that may be null. */
+	public static void writeString(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/** Write the words of a lexicon, which stay readable if the ids of words change. */
+	static void writeLexicon(DataOutput out, Lexicon lexicon) throws IOException {
+		out.writeInt(lexicon.size());
+		for (String word : lexicon) {
+			out.writeUTF(word);
+		}
+	}
+
+	static void readLexicon(DataInput in, Lexicon lexicon) throws IOException {
+		if (!DefaultLexicon.isLoaded()) {
+			throw new IOException("Can't read a lexicon before DefaultLexicon is loaded.");
+		}
+		lexicon.clear();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			lexicon.add(in.readUTF());
+		}
+	}
+
+}
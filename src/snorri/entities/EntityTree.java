@@ -2,14 +2,9 @@ package snorri.entities;
 
 import java.awt.Graphics;
 import java.awt.Rectangle;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -41,7 +36,7 @@ public class EntityTree extends Entity {
 	/** the entities in this level of the tree */
 	private CopyOnWriteArrayList<Entity> entities; // the entities in this level
 	private EntityTree parent;
-	private EntityTree[] nodes; // if this is a leaf, then nodes == null
+	private EntityTree[] nodes; // if this is a leaf or has never held anything, then nodes == null
 	private boolean isEmpty;
 
 	public EntityTree(Vector pos, RectCollider collider, EntityTree parent) {
@@ -49,7 +44,14 @@ public class EntityTree extends Entity {
 		isEmpty = true;
 		entities = new CopyOnWriteArrayList<Entity>();
 		this.parent = parent;
-		if (getRectCollider().getRadiusX() / 2 >= Tile.WIDTH) {
+	}
+
+	/**
+	 * Create the four children of this node, if it is large enough to have any. Nodes are only split once something
+	 * is inserted into them, so the tree for a large, mostly empty level stays small.
+	 */
+	private void split() {
+		if (nodes == null && getRectCollider().getRadiusX() / 2 >= Tile.WIDTH) {
 			nodes = new EntityTree[4];
 			nodes[0] = getSubQuad(-1, -1);
 			nodes[1] = getSubQuad(1, -1);
@@ -101,6 +103,7 @@ public class EntityTree extends Entity {
 			Trigger.setTag(e.getTag(), e);
 		}
 
+		split();
 		boolean inChild = false;
 		if (nodes != null) {
 			for (EntityTree node : nodes) {
@@ -249,6 +252,24 @@ public class EntityTree extends Entity {
 		}
 	}
 
+	/**
+	 * Drop the children of empty nodes, which are created again once something is inserted there. This keeps the tree
+	 * small after many entities are removed, as when a streamed world unloads chunks. It should only be called while
+	 * holding the world's lock, since the tree is searched without one.
+	 */
+	public void prune() {
+		if (nodes == null) {
+			return;
+		}
+		for (EntityTree node : nodes) {
+			node.prune();
+		}
+		calculateEmpty();
+		if (isEmpty) {
+			nodes = null;
+		}
+	}
+
 	public EntityTree getParent() {
 		return parent;
 	}
@@ -294,7 +315,7 @@ public class EntityTree extends Entity {
 	public void renderAround(FocusedWindow<?> window, Graphics gr, double deltaTime) {
 
 		Vector centerPos = window.getCenterObject().getPos();
-		Vector dim = window.getDimensions();
+		Vector dim = window.getDimensions(gr);
 		Entity test = new Entity(centerPos,
 				new RectCollider(dim.copy().multiply_(SCALE_FACTOR).add_(new Vector(CUSHION, CUSHION).multiply_(2))));
 
@@ -313,19 +334,18 @@ public class EntityTree extends Entity {
 		return all.get((int) (Math.random() * all.size()));
 	}
 	
+	/**
+	 * Save all entities in this EntityGroup.
+	 * @see EntityLayerFormat
+	 */
 	public void saveEntities(File file) throws IOException {
-		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-		for (Entity e : getAllEntities()) {
-			out.writeObject(e);
-		}
-		out.close();
+		EntityLayerFormat.write(file, getAllEntities());
 	}
 
 	/**
 	 * Add all entities stored in a file to this EntityGroup.
 	 * @param file
 	 * file to read
-	 * @param level 
 	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
@@ -335,16 +355,9 @@ public class EntityTree extends Entity {
 			return;
 		}
 		
-		ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-		while (true) {
-			try {
-				Entity e = (Entity) in.readObject();
-				insert(e);
-			} catch (EOFException | ClassNotFoundException e) {
-				break;
-			}
+		for (Entity e : EntityLayerFormat.read(file)) {
+			insert(e);
 		}
-		in.close();
 	}
 	
 	@Deprecated
@@ -1,5 +1,9 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.ai.AIMode;
 import snorri.animations.Animation;
 import snorri.dialog.Dialog;
@@ -64,6 +68,33 @@ public class NPC extends AIUnit implements Interactor {
 		return Player.PLAYER_BASE_SPEED;
 	}
 
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		out.writeBoolean(dialog != null);
+		if (dialog == null) {
+			return;
+		}
+		EntityLayerFormat.writeString(out, dialog.name);
+		EntityLayerFormat.writeString(out, dialog.text);
+		EntityLayerFormat.writeString(out, dialog.image);
+		out.writeBoolean(dialog.showObjective);
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		if (!in.readBoolean()) {
+			dialog = null;
+			return;
+		}
+		dialog = new Dialog();
+		dialog.name = EntityLayerFormat.readString(in);
+		dialog.text = EntityLayerFormat.readString(in);
+		dialog.image = EntityLayerFormat.readString(in);
+		dialog.showObjective = in.readBoolean();
+	}
+
 	/** Returns the range outside of which the NPC will chase the player. */
 	@Override
 	protected int getAttackRange() {
@@ -2,6 +2,9 @@ package snorri.entities;
 
 import java.awt.Graphics;
 import java.awt.Image;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import javax.swing.SwingUtilities;
 
@@ -136,6 +139,18 @@ public class Player extends Unit implements Caster {
 		return lexicon;
 	}
 	
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		EntityLayerFormat.writeLexicon(out, lexicon);
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		EntityLayerFormat.readLexicon(in, lexicon);
+	}
+	
 	@Override
 	public ManaManager getMana() {
 		if (getInventory() != null) {
@@ -154,11 +169,12 @@ public class Player extends Unit implements Caster {
 	
 	public void renderHealthBar(Graphics g) {
 		Vector pos = getHealthBarPos();
+		double hearts = getHearts();
 		for (int i = 0; i < HEALTH_RES; i++) {
 			//TODO(#44): Show total health, not percent health.
-			if (getHearts() >= i) {
+			if (hearts >= i) {
 				g.drawImage(HEART, pos.getX(), pos.getY(), null);
-			} else if (getHearts() < i - 1 || getHearts() - (int) getHearts() < 0.5d) {
+			} else if (hearts < i - 1 || hearts - (int) hearts < 0.5d) {
 				g.drawImage(GREY_HEART, pos.getX(), pos.getY(), null);
 			} else {
 				g.drawImage(HALF_HEART, pos.getX(), pos.getY(), null);
@@ -6,9 +6,9 @@ import snorri.events.CastEvent;
 import snorri.events.CastEvent.Caster;
 import snorri.inventory.Weapon;
 import snorri.main.Debug;
-import snorri.main.Main;
 import snorri.semantics.commands.intrans.Go.Movable;
 import snorri.semantics.nouns.Nominal;
+import snorri.world.Tile;
 import snorri.world.Vector;
 import snorri.world.World;
 
@@ -17,13 +17,18 @@ public class Projectile extends Detector implements Movable {
 	private static final long serialVersionUID = 1L;
 
 	// TODO: Move this to be a property of the weapon.
-	private Animation PLACEHOLDER = new Animation(Main.getImage("/textures/objects/pellet.png"));
+	private Animation PLACEHOLDER = new Animation("/textures/objects/pellet.png");
 	private static final int PROJECTILE_SPEED = 450;
+	/** The furthest apart the positions a spell is cast at may be, so that spells acting on tiles don't skip any. */
+	private static final double CAST_STEP = Tile.WIDTH / 2d;
 
 	private Entity root;
 	
 	private Weapon weapon;
 	private boolean movementOverriden;
+	private transient SpellScheduler scheduler;
+	/** Where the spell was last cast, which the next cast steps along from. */
+	private transient Vector lastCast;
 	
 	public Projectile(Entity root, Vector rootVelocity, Vector path, Weapon weapon) {
 		super(root.getPos().copy(), 3); //radius of a projectile is 1
@@ -54,8 +59,13 @@ public class Projectile extends Detector implements Movable {
 			translate(world, velocity.multiply(deltaTime));
 		}
 		else {
-			CastEvent spellEvent = new CastEvent(world, (Caster) root, this, deltaTime / getLifeSpan());
-			weapon.wrapCastSpell(spellEvent);
+			if (scheduler == null) {
+				scheduler = new SpellScheduler();
+			}
+			double elapsed = scheduler.tick(deltaTime, movementOverriden);
+			if (elapsed > 0) {
+				castContinuous(world, elapsed);
+			}
 			if (!movementOverriden) {
 				translate(world, velocity.multiply(deltaTime));
 			}
@@ -64,6 +74,36 @@ public class Projectile extends Detector implements Movable {
 		super.update(world, deltaTime);
 	}
 	
+	/**
+	 * Cast the spell for the time since the last cast, in steps along the path travelled since then. Each step gets an
+	 * equal share of the time, so effects that scale with time add up to the same total.
+	 */
+	private void castContinuous(World world, double elapsed) {
+		Vector end = pos;
+		Vector start = lastCast == null || movementOverriden ? end : lastCast;
+		int steps = Math.max(1, (int) Math.ceil(start.distance(end) / CAST_STEP));
+		// The last cast happens while the projectile is being deleted, so only a deletion by this cast stops it.
+		boolean deleted = isDeleted();
+		for (int i = 1; i <= steps; i++) {
+			Vector at = i == steps ? end : start.add(end.sub(start).multiply((double) i / steps));
+			pos = at;
+			weapon.wrapCastSpell(new CastEvent(world, (Caster) root, this, elapsed / steps / getLifeSpan()));
+			if (pos != at) {
+				// The spell moved the projectile, so cast the rest of the time wherever it ends up.
+				pos = pos.add(end.sub(at));
+				if (i < steps && isDeleted() == deleted) {
+					weapon.wrapCastSpell(new CastEvent(world, (Caster) root, this, elapsed * (steps - i) / steps / getLifeSpan()));
+				}
+				break;
+			}
+			if (isDeleted() != deleted) {
+				pos = end;
+				break;
+			}
+		}
+		lastCast = pos;
+	}
+	
 	@Override
 	protected void updatePosition(World world, double deltaTime) {
 		if (!world.canShootOver(pos)) {
@@ -85,6 +125,11 @@ public class Projectile extends Detector implements Movable {
 	@Override
 	protected void onSafeDelete(World world) {
 		if (root instanceof Caster && weapon != null) {
+			// Catch up on time the scheduler hasn't cast yet, so the spell's total effect doesn't depend on its rate.
+			double elapsed = scheduler == null ? 0 : scheduler.flush();
+			if (elapsed > 0 && weapon.getSpell() != null) {
+				castContinuous(world, elapsed);
+			}
 			CastEvent castEvent = new CastEvent(world, (Caster) root, this);
 			Object output = weapon.wrapCastSpell(castEvent);
 			if (Debug.orbOutputLogged()) {
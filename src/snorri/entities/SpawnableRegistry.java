@@ -1,6 +1,7 @@
 package snorri.entities;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -13,6 +14,14 @@ public class SpawnableRegistry {
 	public static final List<Class<? extends Entity>> SPAWNABLE;
 	/** A list of entities which can be spawned in the level editor. */
 	public static final List<Class<? extends Entity>> EDIT_SPAWNABLE;
+	/**
+	 * A list of entities which are saved by type id in entity.layer files, where the id is the index in this list.
+	 * Only append to this list, since reordering it would change what existing files load as.
+	 */
+	public static final List<Class<? extends Entity>> SAVED = Collections.unmodifiableList(Arrays.asList(
+			Urn.class, Spike.class, Vortex.class, Bomb.class, Desk.class, Drop.class, Mummy.class, Explosion.class,
+			Flower.class, Player.class, Sarcophagus.class, Crocodile.class, Cobra.class, Glyph.class, Fountain.class,
+			NPC.class, Spawn.class, Center.class, Statue.class, Ghost.class, Scorpion.class));
 	
 	static {
 		SPAWNABLE = new ArrayList<>();
@@ -65,5 +74,15 @@ public class SpawnableRegistry {
 	public static boolean canSpawn(Class<?> obj) {
 		return SPAWNABLE.contains(obj);
 	}
+	
+	/** @return the type id of an entity class in entity.layer files, or -1 if it isn't saved by id */
+	public static int getSavedId(Class<?> c) {
+		return SAVED.indexOf(c);
+	}
+	
+	/** @return the entity class with a type id, or null if there isn't one */
+	public static Class<? extends Entity> getSaved(int id) {
+		return id >= 0 && id < SAVED.size() ? SAVED.get(id) : null;
+	}
 
 }
@@ -0,0 +1,59 @@
+package snorri.entities;
+
+/**
+ * Decides when a projectile in flight re-casts its spell.
+ *
+ * Instead of casting on every tick, each projectile casts at a fixed rate with all the time accumulated since its last
+ * cast, so the total effect of a spell over a flight is the same at any frame rate. The first cast happens right away,
+ * and later ones are staggered so projectiles fired together don't all cast on the same tick. <code>Projectile</code>
+ * splits each cast into steps along the path travelled since the last one, so spells acting on tiles don't skip any.
+ *
+ * Spells that have taken over a projectile's movement are cast every tick, since moving in steps would look jerky.
+ */
+class SpellScheduler {
+
+	private static final double RATE = 10;
+	private static final int PHASES = 4;
+
+	private final int phase = (int) (Math.random() * PHASES);
+	private double accumulated = 0;
+	private double untilNext = 0;
+	private boolean cast = false;
+
+	/**
+	 * Advance by one tick.
+	 * @param deltaTime
+	 * 	the length of the tick
+	 * @param everyTick
+	 * 	whether the spell should be cast on every tick regardless of rate
+	 * @return
+	 * 	the time to cast the spell for, or 0 if it should not be cast this tick
+	 */
+	double tick(double deltaTime, boolean everyTick) {
+		accumulated += deltaTime;
+		untilNext -= deltaTime;
+		if (!everyTick && untilNext > 0) {
+			return 0;
+		}
+		
+		double period = 1 / RATE;
+		if (!cast) {
+			cast = true;
+			untilNext = period * (phase + 1) / PHASES;
+		} else if (everyTick || untilNext <= -period) {
+			// Don't try to catch up after a long frame.
+			untilNext = period;
+		} else {
+			untilNext += period;
+		}
+		return flush();
+	}
+
+	/** @return the time accumulated since the last cast, which is then reset */
+	double flush() {
+		double elapsed = accumulated;
+		accumulated = 0;
+		return elapsed;
+	}
+
+}
@@ -1,6 +1,10 @@
 package snorri.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -12,9 +16,16 @@ import snorri.events.CollisionEvent;
 import snorri.events.CastEvent;
 import snorri.inventory.Carrier;
 import snorri.inventory.Inventory;
+import snorri.inventory.Item;
+import snorri.inventory.ManaManager;
+import snorri.inventory.Spell;
+import snorri.inventory.Weapon;
 import snorri.inventory.Stats;
 import snorri.main.Debug;
+import snorri.modifiers.BurnModifier;
+import snorri.modifiers.FlyModifier;
 import snorri.modifiers.Modifier;
+import snorri.modifiers.SlowModifier;
 import snorri.semantics.commands.intrans.Go.Movable;
 import snorri.semantics.commands.trans.Break;
 import snorri.semantics.nouns.Nominal;
@@ -33,6 +44,9 @@ public abstract class Unit extends Entity implements Carrier, Movable {
 	public static final int RADIUS = 46, RADIUS_X = 21, RADIUS_Y = 45;
 	/** Number of pixels for checking whether we are standing on lava. */
 	private static final int FOOT_HEIGHT = 5;
+	/** Modifiers that can be saved, identified by their index. Append only. */
+	private static final List<Class<? extends Modifier<Unit>>> SAVED_MODIFIERS = Arrays.asList(BurnModifier.class,
+			FlyModifier.class, SlowModifier.class);
 	
 	protected List<Modifier<Unit>> modifiers = new ArrayList<>();
 	
@@ -351,6 +365,124 @@ public abstract class Unit extends Entity implements Carrier, Movable {
 		return inventory;
 	}
 	
+	@Override
+	protected void writeProperties(DataOutput out) throws IOException {
+		super.writeProperties(out);
+		out.writeDouble(health);
+		Weapon weapon = inventory.getWeapon();
+		out.writeInt(weapon == null ? -1 : weapon.getType().getId());
+		EntityLayerFormat.writeString(out, getOrthography(weapon));
+		EntityLayerFormat.writeString(out, getOrthography(inventory.getPapyrus()));
+	}
+	
+	@Override
+	protected void readProperties(DataInput in) throws IOException {
+		super.readProperties(in);
+		health = in.readDouble();
+		int weaponId = in.readInt();
+		String weaponSpell = EntityLayerFormat.readString(in);
+		String papyrusSpell = EntityLayerFormat.readString(in);
+		Item weapon = weaponId == -1 ? null : Item.newItem(weaponId);
+		if (weapon == null || weapon instanceof Weapon) {
+			inventory.setWeapon((Weapon) weapon);
+		}
+		// Spells are compiled when they are first cast.
+		if (weaponSpell != null && inventory.getWeapon() != null) {
+			inventory.getWeapon().setSpell(new Spell(weaponSpell));
+		}
+		if (papyrusSpell != null && inventory.getPapyrus() != null) {
+			inventory.getPapyrus().setSpell(new Spell(papyrusSpell));
+		}
+	}
+	
+	/**
+	 * Item nicknames, mana and modifiers were added after the properties of subclasses. Units read from records written
+	 * before then keep the mana their constructor gives them, which for a player is a full <code>ManaManager</code>.
+	 */
+	@Override
+	protected void writeLateProperties(DataOutput out) throws IOException {
+		super.writeLateProperties(out);
+		EntityLayerFormat.writeString(out, getNickname(inventory.getWeapon()));
+		EntityLayerFormat.writeString(out, getNickname(inventory.getPapyrus()));
+		ManaManager mana = inventory.getMana();
+		out.writeBoolean(mana != null);
+		if (mana != null) {
+			out.writeDouble(mana.getMaxMana());
+			out.writeDouble(mana.getManaRegen());
+			out.writeDouble(mana.getMana());
+		}
+		writeModifiers(out);
+	}
+	
+	@Override
+	protected void readLateProperties(DataInput in) throws IOException {
+		super.readLateProperties(in);
+		String weaponNickname = EntityLayerFormat.readString(in);
+		String papyrusNickname = EntityLayerFormat.readString(in);
+		if (inventory.getWeapon() != null) {
+			inventory.getWeapon().setNickname(weaponNickname);
+		}
+		if (inventory.getPapyrus() != null) {
+			inventory.getPapyrus().setNickname(papyrusNickname);
+		}
+		ManaManager mana = null;
+		if (in.readBoolean()) {
+			mana = new ManaManager(in.readDouble(), in.readDouble());
+			mana.setMana(in.readDouble());
+		}
+		inventory.setMana(mana);
+		readModifiers(in);
+	}
+	
+	/** Write the modifiers of this unit which can be saved, and how far along they are. */
+	public void writeModifiers(DataOutput out) throws IOException {
+		List<Modifier<Unit>> saved = new ArrayList<>();
+		for (Modifier<Unit> modifier : modifiers) {
+			if (SAVED_MODIFIERS.contains(modifier.getClass())) {
+				saved.add(modifier);
+			} else {
+				Debug.logger.warning("Can't save " + modifier.getClass().getSimpleName() + " on " + this + ".");
+			}
+		}
+		out.writeInt(saved.size());
+		for (Modifier<Unit> modifier : saved) {
+			out.writeByte(SAVED_MODIFIERS.indexOf(modifier.getClass()));
+			modifier.writeState(out);
+		}
+	}
+	
+	/** Replace the modifiers of this unit with those written by <code>writeModifiers</code>. */
+	public void readModifiers(DataInput in) throws IOException {
+		int count = in.readInt();
+		List<Modifier<Unit>> read = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int kind = in.readUnsignedByte();
+			if (kind >= SAVED_MODIFIERS.size()) {
+				throw new IOException("Unknown modifier " + kind + " on " + this + ".");
+			}
+			try {
+				Modifier<Unit> modifier = SAVED_MODIFIERS.get(kind).getConstructor().newInstance();
+				modifier.readState(in);
+				read.add(modifier);
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("Could not create modifier " + kind + " on " + this + ".", e);
+			}
+		}
+		if (modifiers == null) {
+			modifiers = new CopyOnWriteArrayList<>();
+		}
+		modifiers.clear();
+		modifiers.addAll(read);
+	}
+	
+	private static String getOrthography(Item item) {
+		return item == null || item.getSpell() == null ? null : item.getSpell().getOrthography();
+	}
+	
+	private static String getNickname(Item item) {
+		return item == null ? null : item.getNickname();
+	}
+	
 	public void jump() {
 		if (canJump()) {
 			velocity = velocity.add(JUMP_VELOCITY);
@@ -1,5 +1,8 @@
 package snorri.events;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import snorri.collisions.Collider;
 import snorri.collisions.RectCollider;
 import snorri.entities.Entity;
@@ -34,6 +37,25 @@ public class CastEvent {
 	private double speedModifier = 1;//modifies velocities
 	private double healthInteractModifier = 1; //modifies healing/damage effects
 	
+	private Targets targets = new Targets(); //shared with copies of this event
+	
+	/**
+	 * Entities resolved while running a spell, so that each clause doesn't repeat the same collision queries.
+	 * Events are created once per cast or per tick, so the cache never outlives the state it was computed from unless a
+	 * command changes the world; commands that move, add, or remove entities call <code>invalidateTargets</code>.
+	 */
+	private static class Targets {
+		
+		private Entity thirdPerson;
+		private final Map<Class<?>, Entity> entities = new HashMap<>();
+		
+		private void clear() {
+			thirdPerson = null;
+			entities.clear();
+		}
+		
+	}
+	
 	public interface Caster extends Carrier {
 		
 		public Vector getAimPosition();
@@ -115,6 +137,8 @@ public class CastEvent {
 		sizeModifier = e.sizeModifier;
 		speedModifier = e.speedModifier;
 		healthInteractModifier = e.healthInteractModifier;
+		
+		targets = e.targets;
 	}
 	
 	/** Create a copy of this spell event with a different adverbial degree. */
@@ -140,6 +164,13 @@ public class CastEvent {
 	}
 	
 	public Entity getThirdPerson() {
+		if (targets.thirdPerson == null) {
+			targets.thirdPerson = findThirdPerson();
+		}
+		return targets.thirdPerson;
+	}
+	
+	private Entity findThirdPerson() {
 		Entity e = new Entity(firstPerson.getAimPosition());
 		if (getWorld() == null) {
 			return e;
@@ -149,13 +180,19 @@ public class CastEvent {
 	}
 	
 	public Vector getLocative() {
-		Vector loc = null;
-		if (this.loc != null) {
-			loc = this.loc;
-		} else if (getThirdPerson() != null && getThirdPerson().getPos() != null) {
-			loc = getThirdPerson().getPos();
+		if (loc != null) {
+			return loc;
 		}
-		return loc;
+		Entity thirdPerson = getThirdPerson();
+		return thirdPerson == null ? null : thirdPerson.getPos();
+	}
+	
+	/**
+	 * Forget the entities this event has resolved. Commands should call this after they move, add, or remove entities,
+	 * so later clauses of the spell see the change.
+	 */
+	public void invalidateTargets() {
+		targets.clear();
 	}
 	
 	public Vector getDestination() {
@@ -242,10 +279,15 @@ public class CastEvent {
 	}
 	
 	public <E extends Entity> E resolveEntity(Class<E> c) {
+		if (targets.entities.containsKey(c)) {
+			return c.cast(targets.entities.get(c));
+		}
 		//TODO(snorri): Might be able to narrow the search range some here.
 		Collider collider = new RectCollider(new Vector(Main.getWindow()));
 		Entity sweeper = new Entity(getSecondPerson().getPos(), collider);
-		return world.getEntityTree().getFirstCollision(sweeper, c);
+		E resolved = world.getEntityTree().getFirstCollision(sweeper, c);
+		targets.entities.put(c, resolved);
+		return resolved;
 	}
 	
 }
@@ -1,94 +1,276 @@
 package snorri.grammar;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 import snorri.grammar.categories.Category;
+import snorri.grammar.categories.CategoryTable;
 import snorri.main.Debug;
 import snorri.semantics.Definition;
-import snorri.semantics.Lambda;
 import snorri.semantics.commands.Command;
-import snorri.util.Pair;
 
 public class ChartParser {
 
 	private static final Category COMMAND = PartOfSpeech.INTRANS_CMD.getCategory();
+	private static final int DEFAULT_BEAM_WIDTH = 1;
 
-	private HashMap<Pair<Integer, Integer>, List<Pair<Category, Object>>> chart;
+	/**
+	 * A triangular chart. <code>chart.get(end)[start]</code> holds the derivations spanning tokens start through end.
+	 *
+	 * The chart only stores categories and backpointers. Meanings are built once a derivation is chosen, when it is
+	 * compiled to a <code>SpellProgram</code>.
+	 */
+	private List<Cell[]> chart;
+	private List<Definition<?>[]> definitions;
 	private List<String> tokens;
+	private Tokens input;
+
+	/**
+	 * The most derivations of any one category kept in a cell, or 0 to keep all of them.
+	 *
+	 * Derivations with the same category combine with their neighbors in exactly the same ways, so only the first of
+	 * them can ever be part of the preferred parse. Keeping one per category therefore finds the same command as
+	 * keeping all of them, while chains of connectives no longer multiply the size of the chart.
+	 */
+	private int beamWidth = DEFAULT_BEAM_WIDTH;
+
+	/**
+	 * The derivations spanning some range of tokens.
+	 *
+	 * Each derivation is stored as FIELDS consecutive ints: its category id, the split point (or LEXICAL), the index of
+	 * its left child (or of its definition), the index of its right child, and whether the left child is the function.
+	 */
+	private static class Cell {
+
+		private static final int FIELDS = 5;
+		private static final int LEXICAL = -1;
+
+		private int[] data = new int[2 * FIELDS];
+		private int size;
+		/** Whether derivations were left out of this cell by the beam. */
+		private boolean pruned;
+
+		private void add(int category, int split, int left, int right, boolean forward) {
+			if ((size + 1) * FIELDS > data.length) {
+				data = Arrays.copyOf(data, 2 * data.length);
+			}
+			int i = size++ * FIELDS;
+			data[i] = category;
+			data[i + 1] = split;
+			data[i + 2] = left;
+			data[i + 3] = right;
+			data[i + 4] = forward ? 1 : 0;
+		}
+
+		private int getCategory(int i) {
+			return data[i * FIELDS];
+		}
+
+		private int getSplit(int i) {
+			return data[i * FIELDS + 1];
+		}
+
+		private int getLeft(int i) {
+			return data[i * FIELDS + 2];
+		}
+
+		private int getRight(int i) {
+			return data[i * FIELDS + 3];
+		}
+
+		private boolean isForward(int i) {
+			return data[i * FIELDS + 4] == 1;
+		}
+
+	}
 
 	public ChartParser(List<String> tokens) {
-		this.tokens = tokens;
+		this(Tokens.of(tokens));
+	}
+
+	public ChartParser(Tokens input) {
+		this.input = input;
+		tokens = new ArrayList<>(input.size());
+		chart = new ArrayList<>(input.size());
+		definitions = new ArrayList<>(input.size());
+	}
+
+	/**
+	 * Create a parser with an empty chart, which can be extended one token at a time with <code>push</code>.
+	 */
+	public ChartParser() {
+		this(Tokens.of(new ArrayList<>()));
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public boolean fillChart() {
-		chart = new HashMap<>();
-		Pair<Integer, Integer> key;
-		for (int idx = 0; idx < tokens.size(); idx++) {
-			key = new Pair<>(idx, idx);
-			List<Definition<?>> definitions = DefaultLexicon.lookup(tokens.get(idx));
-			if (definitions == null) {
-				Debug.logger.severe("Invalid word: " + tokens.get(idx) + ".");
+		tokens = new ArrayList<>(input.size());
+		chart = new ArrayList<>(input.size());
+		definitions = new ArrayList<>(input.size());
+		for (int i = 0; i < input.size(); i++) {
+			if (!push(input.getWord(i), input.getId(i))) {
+				Debug.logger.severe("Invalid word: " + input.getWord(i) + " at character " + input.getOffset(i) + ".");
 				return false;
 			}
-			chart.put(key, new LinkedList<>());
-			List<Pair<Category, Object>> values = chart.get(key);
-			definitions.forEach(def -> {
-				values.add(new Pair<>(def.getCategory(), def.getMeaning()));
-			});
-			chart.put(key, values);
-		}
-
-		Category newCategory;
-		Object newMeaning;
-		for (int len = 1; len < tokens.size(); len++) {
-			for (int start = 0; start < tokens.size() - len; start++) {
-				int end = start + len;
-				key = new Pair<>(start, end);
-				chart.put(key, new LinkedList<>());
-				List<Pair<Category, Object>> values = chart.get(key);
-				for (int split = start; split < end; split++) {
-					for (Pair<Category, Object> startPair : chart.get(new Pair<>(start, split))) {
-						for (Pair<Category, Object> endPair : chart.get(new Pair<>(split + 1, end))) {							
-							if (startPair.getFirst().getDirection() == '/'
-									&& (newCategory = startPair.getFirst().apply(endPair.getFirst())) != null) {
-								newMeaning = ((Lambda) startPair.getSecond()).apply(endPair.getSecond());
-								values.add(new Pair<>(newCategory, newMeaning));
-							} else if (endPair.getFirst().getDirection() == '\\'
-									&& (newCategory = endPair.getFirst().apply(startPair.getFirst())) != null) {
-								newMeaning = ((Lambda) endPair.getSecond()).apply(startPair.getSecond());
-								values.add(new Pair<>(newCategory, newMeaning));
-							}
+		}
+		return true;
+	}
+
+	/**
+	 * Append a token to the parsed text. Only the cells ending at the new token are filled, so this takes time
+	 * proportional to the cells in one column rather than reparsing the whole text.
+	 *
+	 * @return false if the token is not a word, in which case the chart is unchanged
+	 */
+	public boolean push(String token) {
+		return push(token, DefaultLexicon.getId(token));
+	}
+
+	/**
+	 * Append a token whose id in <code>DefaultLexicon</code> is already known, e.g. from <code>Tokens</code>.
+	 *
+	 * @see #push(String)
+	 */
+	public boolean push(String token, int id) {
+		if (!addColumn(id)) {
+			return false;
+		}
+		tokens.add(token);
+		return true;
+	}
+
+	/** Remove the last token from the parsed text. */
+	public void pop() {
+		int last = tokens.size() - 1;
+		tokens.remove(last);
+		chart.remove(last);
+		definitions.remove(last);
+	}
+
+	/**
+	 * Set how many derivations of each category are kept per cell. Only matters for inspecting the chart, since the
+	 * preferred command is the same for any width.
+	 *
+	 * @param beamWidth
+	 *            The maximum, or 0 to keep every derivation.
+	 */
+	public void setBeamWidth(int beamWidth) {
+		this.beamWidth = beamWidth;
+	}
+
+	/** @return the tokens parsed so far */
+	public List<String> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Extend the chart with the cells ending at a new token.
+	 *
+	 * Cells are filled from the shortest span to the longest, so every cell they are built from is already complete.
+	 *
+	 * @return false if the token is not a word
+	 */
+	private boolean addColumn(int id) {
+		if (id == DefaultLexicon.UNKNOWN) {
+			return false;
+		}
+
+		int end = chart.size();
+		Cell[] column = new Cell[end + 1];
+		chart.add(column);
+
+		Definition<?>[] defs = DefaultLexicon.lookup(id);
+		definitions.add(defs);
+		column[end] = new Cell();
+		for (int i = 0; i < defs.length; i++) {
+			column[end].add(CategoryTable.intern(defs[i].getCategory()), Cell.LEXICAL, i, 0, false);
+		}
+
+		int[] counts = new int[CategoryTable.size()];
+		for (int start = end - 1; start >= 0; start--) {
+			Cell values = new Cell();
+			for (int split = start; split < end; split++) {
+				Cell left = chart.get(split)[start];
+				Cell right = column[split + 1];
+				for (int i = 0; i < left.size; i++) {
+					int leftCategory = left.getCategory(i);
+					for (int j = 0; j < right.size; j++) {
+						int rightCategory = right.getCategory(j);
+						int newCategory;
+						boolean forward;
+						if ((newCategory = CategoryTable.applyForward(leftCategory, rightCategory)) != CategoryTable.NONE) {
+							forward = true;
+						} else if ((newCategory = CategoryTable.applyBackward(rightCategory, leftCategory)) != CategoryTable.NONE) {
+							forward = false;
+						} else {
+							continue;
+						}
+
+						if (beamWidth > 0 && counts[newCategory] >= beamWidth) {
+							values.pruned = true;
+						} else {
+							counts[newCategory]++;
+							values.add(newCategory, split, i, j, forward);
 						}
 					}
 				}
 			}
+			for (int i = 0; i < values.size; i++) {
+				counts[values.getCategory(i)] = 0;
+			}
+			column[start] = values;
 		}
+
 		return true;
 	}
 
+	/** Build the tree of the i-th derivation spanning tokens start through end. */
+	private Derivation getDerivation(int start, int end, int i) {
+		Cell cell = chart.get(end)[start];
+		int split = cell.getSplit(i);
+		if (split == Cell.LEXICAL) {
+			return new Derivation(definitions.get(end)[cell.getLeft(i)]);
+		}
+		Derivation left = getDerivation(start, split, cell.getLeft(i));
+		Derivation right = getDerivation(split + 1, end, cell.getRight(i));
+		if (cell.isForward(i)) {
+			return new Derivation(left, right);
+		}
+		return new Derivation(right, left);
+	}
+
+	/** @return true if the tokens parsed so far form a command */
+	public boolean isGrammatical() {
+		return !tokens.isEmpty() && chart.get(tokens.size() - 1)[0].size > 0
+				&& chart.get(tokens.size() - 1)[0].getCategory(0) == COMMAND.getId();
+	}
+
 	public Command getCommand() {
-		List<Pair<Category, Object>> results = chart.get(new Pair<>(0, tokens.size() - 1));
-		if (results.size() == 0) {
+		if (tokens.isEmpty()) {
+			return null;
+		}
+		Cell results = chart.get(tokens.size() - 1)[0];
+		if (results.size == 0) {
 			return null;
 		}
 
-		if (results.size() > 1) {
+		if (results.size > 1 || results.pruned) {
 			// Ambiguities are resolved left-to-right.
 			Debug.logger.warning("Ambiguous spell: " + tokens + ". This is probably okay.");
 		}
-		Pair<Category, Object> result = results.get(0);
-		if (result.getFirst().equals(COMMAND)) {
-			return (Command) result.getSecond();
+		if (results.getCategory(0) == COMMAND.getId()) {
+			return SpellCompiler.compile(getDerivation(0, tokens.size() - 1, 0));
 		}
 		return null;
 	}
 
+	/** Parse text, reusing the compiled command if the same spell has been parsed before. */
 	public static Command parseText(String text) {
-		List<String> tokens = tokenize(text);
+		return SpellCache.get(Tokens.tokenize(text));
+	}
+
+	/** Parse tokens without going through <code>SpellCache</code>. */
+	public static Command parseTokens(Tokens tokens) {
 		ChartParser parser = new ChartParser(tokens);
 		boolean validWords = parser.fillChart();
 		if (validWords) {
@@ -98,11 +280,19 @@ public class ChartParser {
 	}
 
 	public static List<String> tokenize(String text) {
-		return Arrays.asList(text.replaceAll("\\.", "").split("\\s+|="));
+		return Tokens.tokenize(text).getWords();
 	}
 
-	public HashMap<Pair<Integer, Integer>, List<Pair<Category, Object>>> getChart() {
-		return chart;
+	/**
+	 * @return the categories of the derivations spanning tokens start through end, in order of preference
+	 */
+	public List<Category> getCategories(int start, int end) {
+		Cell cell = chart.get(end)[start];
+		List<Category> categories = new ArrayList<>(cell.size);
+		for (int i = 0; i < cell.size; i++) {
+			categories.add(CategoryTable.get(cell.getCategory(i)));
+		}
+		return categories;
 	}
 
 }
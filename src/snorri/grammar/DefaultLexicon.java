@@ -55,8 +55,14 @@ import snorri.world.UnifiedTileType;
 
 public class DefaultLexicon {
 	
+	/** The id of a string which is not a word. */
+	public static final int UNKNOWN = -1;
+	
 	static Map<String, List<Definition<?>>> lexicon;
+	/** Sorted, so that the id of each word is its index here. */
 	private static String[] orthographicForms;
+	private static Definition<?>[][] definitions;
+	private static LexiconTrie trie;
 	
 	public static void load() {
 		// Don't use a static initializer.
@@ -71,9 +77,19 @@ public class DefaultLexicon {
 		addNames();
 		orthographicForms = lexicon.keySet().toArray(new String[] {});
 		Arrays.sort(orthographicForms);
+		indexForms();
 		initializeTiers();
 	}
 	
+	private static void indexForms() {
+		definitions = new Definition<?>[orthographicForms.length][];
+		trie = new LexiconTrie();
+		for (int id = 0; id < orthographicForms.length; id++) {
+			definitions[id] = lexicon.get(orthographicForms[id]).toArray(new Definition<?>[0]);
+			trie.add(orthographicForms[id], id);
+		}
+	}
+	
 	private static void register(String name, Definition<?> definition) {
 		if (lexicon.get(name) == null) {
 			lexicon.put(name, new LinkedList<>());
@@ -186,6 +202,29 @@ public class DefaultLexicon {
 		return orthographicForms;
 	}
 
+	/** @return whether <code>load</code> has been called, without which no string is a word */
+	public static boolean isLoaded() {
+		return trie != null;
+	}
+
+	/** @return the id of a word, or <code>UNKNOWN</code> if it is not in the lexicon */
+	public static int getId(String form) {
+		return trie == null ? UNKNOWN : trie.get(form);
+	}
+	
+	public static String getOrthographicForm(int id) {
+		return orthographicForms[id];
+	}
+	
+	/** @return the definitions of the word with some id, in the order they were registered */
+	public static Definition<?>[] lookup(int id) {
+		return definitions[id];
+	}
+	
+	static LexiconTrie getTrie() {
+		return trie;
+	}
+	
 	public static List<Definition<?>> lookup(String form) {
 		if (lexicon.containsKey(form)) {
 			return lexicon.get(form);
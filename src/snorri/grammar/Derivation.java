@@ -0,0 +1,59 @@
+package snorri.grammar;
+
+import snorri.semantics.Definition;
+import snorri.semantics.Lambda;
+
+/**
+ * A node in the derivation tree of a parse.
+ *
+ * A node is either a word with one of its definitions, or the application of a function node to an argument node.
+ */
+class Derivation {
+
+	private final Definition<?> definition;
+	private final Derivation function;
+	private final Derivation argument;
+
+	Derivation(Definition<?> definition) {
+		this.definition = definition;
+		function = null;
+		argument = null;
+	}
+
+	Derivation(Derivation function, Derivation argument) {
+		definition = null;
+		this.function = function;
+		this.argument = argument;
+	}
+
+	boolean isLexical() {
+		return definition != null;
+	}
+
+	/** @return true if this is a word whose definition is an instance of c */
+	boolean isWord(Class<?> c) {
+		return c.isInstance(definition);
+	}
+
+	Definition<?> getDefinition() {
+		return definition;
+	}
+
+	Derivation getFunction() {
+		return function;
+	}
+
+	Derivation getArgument() {
+		return argument;
+	}
+
+	/** Compose the meaning of this node out of the meanings of its children. */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	Object getMeaning() {
+		if (isLexical()) {
+			return definition.getMeaning();
+		}
+		return ((Lambda) function.getMeaning()).apply(argument.getMeaning());
+	}
+
+}
@@ -1,22 +1,47 @@
 package snorri.grammar;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import snorri.inventory.DropContainer;
 import snorri.inventory.Droppable;
 import snorri.inventory.VocabDrop;
+import snorri.main.Debug;
 
 public class Lexicon extends HashSet<String> implements DropContainer<Droppable>, Serializable {
-	
+
 	/**
 	 * A lexicon is a set of strings that an entity knows. These strings have meanings defined in the static default lexicon.
+	 *
+	 * The words are stored as a bitset over their ids in <code>DefaultLexicon</code>, so strings that aren't words can't
+	 * be added. The ids are positions in the sorted dictionary, which shift whenever a word is added to it, so a lexicon
+	 * is saved as the spellings of its words and the bitset is rebuilt when it is read. This still extends
+	 * <code>HashSet</code> so that lexicons saved in existing worlds can be read, but the inherited set is always empty:
+	 * old saves are moved into the bitset as they are loaded.
 	 */
 	private static final long serialVersionUID = 1L;
-		
+
+	/** Only the spellings of the words are saved. */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("spellings", String[].class)
+	};
+
+	private transient BitSet words = new BitSet();
+
 	public static Collection<Droppable> getDropsInLang() {
 		List<Droppable> out = new ArrayList<>();
 		for (String raw : DefaultLexicon.getOrthographicForms()) {
@@ -32,7 +57,7 @@ public class Lexicon extends HashSet<String> implements DropContainer<Droppable>
 		}
 		return false;
 	}
-	
+
 	@Override
 	public boolean remove(Droppable d, boolean specific) {
 		if (d instanceof VocabDrop) {
@@ -40,11 +65,39 @@ public class Lexicon extends HashSet<String> implements DropContainer<Droppable>
 		}
 		return false;
 	}
-	
+
+	@Override
+	public boolean add(String word) {
+		int id = DefaultLexicon.getId(word);
+		if (id == DefaultLexicon.UNKNOWN || words.get(id)) {
+			return false;
+		}
+		words.set(id);
+		return true;
+	}
+
 	public boolean remove(String word, boolean specific) {
-		return super.remove(word);
+		return remove(word);
 	}
-		
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o)) {
+			return false;
+		}
+		words.clear(DefaultLexicon.getId((String) o));
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof String)) {
+			return false;
+		}
+		int id = DefaultLexicon.getId((String) o);
+		return id != DefaultLexicon.UNKNOWN && words.get(id);
+	}
+
 	public boolean contains(Collection<String> words) {
 		for (String word : words) {
 			if (!contains(word)) {
@@ -53,5 +106,132 @@ public class Lexicon extends HashSet<String> implements DropContainer<Droppable>
 		}
 		return true;
 	}
-	
+
+	/** @return true if every word of a spell is known, checking ids rather than strings */
+	public boolean contains(Tokens tokens) {
+		for (int i = 0; i < tokens.size(); i++) {
+			int id = tokens.getId(i);
+			if (id == DefaultLexicon.UNKNOWN || !words.get(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return true if this lexicon knows every word another one does */
+	public boolean containsAll(Lexicon other) {
+		BitSet missing = (BitSet) other.words.clone();
+		missing.andNot(words);
+		return missing.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return words.cardinality();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return words.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		words.clear();
+	}
+
+	/** Iterates in the order of <code>DefaultLexicon.getOrthographicForms()</code>. */
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			private int next = words.nextSetBit(0);
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public String next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = words.nextSetBit(next + 1);
+				return DefaultLexicon.getOrthographicForm(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				words.clear(last);
+				last = -1;
+			}
+
+		};
+	}
+
+	@Override
+	public Spliterator<String> spliterator() {
+		return Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.ORDERED);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return toArray(new Object[0]);
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		T[] out = Arrays.copyOf(a, size());
+		int i = 0;
+		for (String word : this) {
+			@SuppressWarnings("unchecked")
+			T t = (T) word;
+			out[i++] = t;
+		}
+		return out;
+	}
+
+	@Override
+	public Lexicon clone() {
+		Lexicon copy = (Lexicon) super.clone();
+		copy.words = (BitSet) words.clone();
+		return copy;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("spellings", toArray(new String[0]));
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		if (!DefaultLexicon.isLoaded()) {
+			throw new InvalidObjectException("Can't read a lexicon before DefaultLexicon is loaded.");
+		}
+		String[] spellings = (String[]) in.readFields().get("spellings", null);
+		words = new BitSet();
+		List<String> saved = new ArrayList<>();
+		if (spellings != null) {
+			saved.addAll(Arrays.asList(spellings));
+		} else {
+			// Saved before lexicons were bitsets, so the words were read into the inherited set.
+			Iterator<String> legacy = super.iterator();
+			while (legacy.hasNext()) {
+				saved.add(legacy.next());
+			}
+			super.clear();
+		}
+		for (String word : saved) {
+			if (!add(word)) {
+				Debug.logger.warning("Saved lexicon has " + word + ", which is no longer a word.");
+			}
+		}
+	}
+
 }
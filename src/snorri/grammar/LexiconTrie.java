@@ -0,0 +1,75 @@
+package snorri.grammar;
+
+import java.util.Arrays;
+
+/**
+ * A trie over the orthographic forms of the lexicon, so a word can be mapped to its id one character at a time.
+ *
+ * Nodes are rows of a flat table indexed by ASCII character. Forms with other characters can't be added, and looking
+ * them up gives <code>DefaultLexicon.UNKNOWN</code>.
+ */
+class LexiconTrie {
+
+	static final int ROOT = 0;
+	static final int NONE = -1;
+
+	private static final int ALPHABET = 128;
+
+	private int[] next = new int[ALPHABET * 64];
+	private int[] ids = new int[64];
+	private int nodes = 1;
+
+	LexiconTrie() {
+		Arrays.fill(next, NONE);
+		Arrays.fill(ids, DefaultLexicon.UNKNOWN);
+	}
+
+	void add(String form, int id) {
+		int node = ROOT;
+		for (int i = 0; i < form.length(); i++) {
+			char c = form.charAt(i);
+			if (c >= ALPHABET) {
+				throw new IllegalArgumentException("Can't add non-ASCII word " + form + " to the lexicon.");
+			}
+			int child = next[node * ALPHABET + c];
+			if (child == NONE) {
+				child = newNode();
+				next[node * ALPHABET + c] = child;
+			}
+			node = child;
+		}
+		ids[node] = id;
+	}
+
+	/** @return the node reached by reading c at some node, or <code>NONE</code> */
+	int step(int node, char c) {
+		if (node == NONE || c >= ALPHABET) {
+			return NONE;
+		}
+		return next[node * ALPHABET + c];
+	}
+
+	/** @return the id of the word ending at some node, or <code>DefaultLexicon.UNKNOWN</code> */
+	int getId(int node) {
+		return node == NONE ? DefaultLexicon.UNKNOWN : ids[node];
+	}
+
+	int get(String form) {
+		int node = ROOT;
+		for (int i = 0; i < form.length() && node != NONE; i++) {
+			node = step(node, form.charAt(i));
+		}
+		return getId(node);
+	}
+
+	private int newNode() {
+		if (nodes == ids.length) {
+			next = Arrays.copyOf(next, 2 * next.length);
+			Arrays.fill(next, nodes * ALPHABET, next.length, NONE);
+			ids = Arrays.copyOf(ids, 2 * ids.length);
+			Arrays.fill(ids, nodes, ids.length, DefaultLexicon.UNKNOWN);
+		}
+		return nodes++;
+	}
+
+}
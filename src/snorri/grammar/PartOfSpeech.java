@@ -2,6 +2,7 @@ package snorri.grammar;
 
 import snorri.grammar.categories.AtomicCategory;
 import snorri.grammar.categories.Category;
+import snorri.grammar.categories.CategoryTable;
 import snorri.grammar.categories.DerivedCategory;
 
 public enum PartOfSpeech {
@@ -32,6 +33,13 @@ public enum PartOfSpeech {
 	CONJUNCTION(new DerivedCategory(new DerivedCategory(INTRANS_CMD.cat, '\\', INTRANS_CMD.cat), '/', INTRANS_CMD.cat));
 
 	private Category cat;
+	
+	static {
+		for (PartOfSpeech pos : values()) {
+			CategoryTable.intern(pos.cat);
+		}
+		CategoryTable.build();
+	}
 
 	PartOfSpeech(Category cat) {
 		this.cat = cat;
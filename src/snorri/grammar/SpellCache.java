@@ -0,0 +1,69 @@
+package snorri.grammar;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import snorri.semantics.commands.Command;
+
+/**
+ * A process-wide cache of compiled spells.
+ *
+ * Spells are keyed by their normalized orthography (their tokens joined by single spaces), so the same spell written
+ * with different spacing or punctuation is only parsed once. Spells that fail to parse are cached too. The cache is
+ * bounded and evicts the least recently used spell.
+ */
+public class SpellCache {
+
+	private static final int CAPACITY = 512;
+
+	/** Stored for text that does not parse, since the map can't tell a cached null from a missing key. */
+	private static final Command UNPARSEABLE = event -> null;
+
+	private static final Map<String, Command> cache = new LinkedHashMap<String, Command>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Command> eldest) {
+			return size() > CAPACITY;
+		}
+
+	};
+
+	/**
+	 * Get the compiled command for some tokens, parsing them if they are not cached.
+	 *
+	 * @return The command, or null if the tokens do not parse.
+	 */
+	public static Command get(Tokens tokens) {
+		String key = normalize(tokens.getWords());
+		Command command;
+		synchronized (cache) {
+			command = cache.get(key);
+		}
+
+		if (command == null) {
+			command = ChartParser.parseTokens(tokens);
+			if (command == null) {
+				command = UNPARSEABLE;
+			}
+			synchronized (cache) {
+				cache.put(key, command);
+			}
+		}
+
+		return command == UNPARSEABLE ? null : command;
+	}
+
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private static String normalize(List<String> tokens) {
+		return String.join(" ", tokens);
+	}
+
+}
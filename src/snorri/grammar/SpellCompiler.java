@@ -0,0 +1,106 @@
+package snorri.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import snorri.events.CastEvent;
+import snorri.semantics.CommandStatus;
+import snorri.semantics.Lambda;
+import snorri.semantics.conjunctions.And;
+import snorri.semantics.conjunctions.Else;
+import snorri.semantics.conjunctions.If;
+import snorri.semantics.conjunctions.Or;
+
+/**
+ * Lowers the derivation of a command to a <code>SpellProgram</code>.
+ *
+ * Connectives are compiled to branches, so their closures are never built. Every other command or predicate is
+ * composed as usual and called from the program as a single procedure.
+ */
+class SpellCompiler {
+
+	private int[] code = new int[8 * SpellProgram.WIDTH];
+	private int size;
+	private final List<Lambda<CastEvent, CommandStatus>> procedures = new ArrayList<>();
+
+	private SpellCompiler() {
+	}
+
+	static SpellProgram compile(Derivation command) {
+		SpellCompiler compiler = new SpellCompiler();
+		compiler.compileCommand(command);
+		return new SpellProgram(Arrays.copyOf(compiler.code, compiler.size), compiler.procedures);
+	}
+
+	/**
+	 * Compile a derivation of category Command.
+	 *
+	 * Commands modified by a connective are built by applying the connective's adverb to the modified command, so the
+	 * patterns here are:
+	 * <ul>
+	 * <li><code>cmd (AND cmd2)</code> and <code>cmd (OR cmd2)</code></li>
+	 * <li><code>cmd (Dr pred)</code></li>
+	 * <li><code>cmd (conditional (ELSE cmd2))</code></li>
+	 * </ul>
+	 */
+	private void compileCommand(Derivation node) {
+		Derivation adverb = node.getFunction();
+		if (adverb == null || adverb.isLexical()) {
+			emitCall(node);
+			return;
+		}
+
+		Derivation connective = adverb.getFunction();
+		if (connective.isWord(And.class)) {
+			compileCommand(node.getArgument());
+			int jump = emitJump(SpellProgram.JUMP_UNLESS, CommandStatus.DONE);
+			compileCommand(adverb.getArgument());
+			patch(jump);
+		} else if (connective.isWord(Or.class)) {
+			compileCommand(node.getArgument());
+			int jump = emitJump(SpellProgram.JUMP_IF, CommandStatus.DONE);
+			compileCommand(adverb.getArgument());
+			patch(jump);
+		} else if (connective.isWord(If.class)) {
+			emitCall(adverb.getArgument());
+			int jump = emitJump(SpellProgram.JUMP_UNLESS, CommandStatus.TRUE);
+			compileCommand(node.getArgument());
+			patch(jump);
+		} else if (!connective.isLexical() && connective.getFunction().isWord(Else.class)) {
+			compileCommand(new Derivation(adverb.getArgument(), node.getArgument()));
+			int jump = emitJump(SpellProgram.JUMP_UNLESS, CommandStatus.FALSE);
+			compileCommand(connective.getArgument());
+			patch(jump);
+		} else {
+			emitCall(node);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void emitCall(Derivation procedure) {
+		procedures.add((Lambda<CastEvent, CommandStatus>) procedure.getMeaning());
+		emit(SpellProgram.CALL, procedures.size() - 1, 0);
+	}
+
+	/** @return the position of the jump, so its target can be patched */
+	private int emitJump(int opcode, CommandStatus status) {
+		emit(opcode, status.ordinal(), 0);
+		return size - SpellProgram.WIDTH;
+	}
+
+	/** Point a jump at the next instruction to be emitted. */
+	private void patch(int jump) {
+		code[jump + 2] = size;
+	}
+
+	private void emit(int opcode, int a, int b) {
+		if (size + SpellProgram.WIDTH > code.length) {
+			code = Arrays.copyOf(code, 2 * code.length);
+		}
+		code[size++] = opcode;
+		code[size++] = a;
+		code[size++] = b;
+	}
+
+}
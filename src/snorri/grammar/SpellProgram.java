@@ -0,0 +1,70 @@
+package snorri.grammar;
+
+import java.util.List;
+
+import snorri.events.CastEvent;
+import snorri.semantics.CommandStatus;
+import snorri.semantics.Lambda;
+import snorri.semantics.commands.Command;
+
+/**
+ * A spell lowered to a flat list of instructions.
+ *
+ * Each instruction is three ints: an opcode and two operands. <code>CALL</code> runs one of the program's procedures
+ * (a command or predicate closure) and stores its status. The jump instructions branch on that status, which is how
+ * <code>If</code>, <code>Else</code>, <code>And</code>, and <code>Or</code> are compiled. The program is run by a single
+ * loop whose only state is the program counter and the last status, so running it allocates nothing.
+ *
+ * @see SpellCompiler
+ */
+public class SpellProgram implements Command {
+
+	/** Run procedure a and store its status. */
+	static final int CALL = 0;
+	/** Jump to instruction b if the status is <code>CommandStatus.values()[a]</code>. */
+	static final int JUMP_IF = 1;
+	/** Jump to instruction b unless the status is <code>CommandStatus.values()[a]</code>. */
+	static final int JUMP_UNLESS = 2;
+
+	static final int WIDTH = 3;
+
+	private static final CommandStatus[] STATUSES = CommandStatus.values();
+
+	private final int[] code;
+	private final List<Lambda<CastEvent, CommandStatus>> procedures;
+
+	SpellProgram(int[] code, List<Lambda<CastEvent, CommandStatus>> procedures) {
+		this.code = code;
+		this.procedures = procedures;
+	}
+
+	@Override
+	public CommandStatus apply(CastEvent event) {
+		CommandStatus status = null;
+		int pc = 0;
+		while (pc < code.length) {
+			int a = code[pc + 1];
+			switch (code[pc]) {
+			case CALL:
+				status = procedures.get(a).apply(event);
+				pc += WIDTH;
+				break;
+			case JUMP_IF:
+				pc = status == STATUSES[a] ? code[pc + 2] : pc + WIDTH;
+				break;
+			case JUMP_UNLESS:
+				pc = status != STATUSES[a] ? code[pc + 2] : pc + WIDTH;
+				break;
+			default:
+				throw new IllegalStateException("Invalid opcode " + code[pc] + " in spell program.");
+			}
+		}
+		return status;
+	}
+
+	/** @return the number of instructions in this program */
+	public int size() {
+		return code.length / WIDTH;
+	}
+
+}
@@ -0,0 +1,109 @@
+package snorri.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The words of a spell, along with their ids in <code>DefaultLexicon</code> and where they start in the text.
+ *
+ * Words are separated by whitespace or <code>=</code>, and periods are ignored. Each word is matched against the
+ * lexicon as it is read, so the parser never has to hash it.
+ */
+public final class Tokens {
+
+	private final List<String> words;
+	private final int[] ids;
+	private final int[] offsets;
+
+	private Tokens(List<String> words, int[] ids, int[] offsets) {
+		this.words = Collections.unmodifiableList(words);
+		this.ids = ids;
+		this.offsets = offsets;
+	}
+
+	public static Tokens tokenize(String text) {
+		LexiconTrie trie = DefaultLexicon.getTrie();
+		List<String> words = new ArrayList<>();
+		int[] ids = new int[8];
+		int[] offsets = new int[8];
+		StringBuilder word = new StringBuilder();
+		int start = 0;
+		int node = LexiconTrie.ROOT;
+
+		for (int i = 0; i <= text.length(); i++) {
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			if (c == '.') {
+				continue;
+			}
+			if (!Character.isWhitespace(c) && c != '=') {
+				if (word.length() == 0) {
+					start = i;
+				}
+				word.append(c);
+				node = trie == null ? LexiconTrie.NONE : trie.step(node, c);
+				continue;
+			}
+			if (word.length() > 0) {
+				if (words.size() == ids.length) {
+					ids = Arrays.copyOf(ids, 2 * ids.length);
+					offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+				}
+				ids[words.size()] = trie == null ? DefaultLexicon.UNKNOWN : trie.getId(node);
+				offsets[words.size()] = start;
+				words.add(word.toString());
+				word.setLength(0);
+				node = LexiconTrie.ROOT;
+			}
+		}
+
+		return new Tokens(words, Arrays.copyOf(ids, words.size()), Arrays.copyOf(offsets, words.size()));
+	}
+
+	/** Look up words which have already been split, as if they had been written separated by spaces. */
+	public static Tokens of(List<String> words) {
+		int[] ids = new int[words.size()];
+		int[] offsets = new int[words.size()];
+		int offset = 0;
+		for (int i = 0; i < words.size(); i++) {
+			ids[i] = DefaultLexicon.getId(words.get(i));
+			offsets[i] = offset;
+			offset += words.get(i).length() + 1;
+		}
+		return new Tokens(new ArrayList<>(words), ids, offsets);
+	}
+
+	public int size() {
+		return words.size();
+	}
+
+	public String getWord(int i) {
+		return words.get(i);
+	}
+
+	/** @return the id of the i-th word, or <code>DefaultLexicon.UNKNOWN</code> if it is not a word */
+	public int getId(int i) {
+		return ids[i];
+	}
+
+	/** @return the index in the text of the first character of the i-th word */
+	public int getOffset(int i) {
+		return offsets[i];
+	}
+
+	public List<String> getWords() {
+		return words;
+	}
+
+	/** @return the index of the first word not in the lexicon, or -1 if every word is */
+	public int getFirstUnknown() {
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] == DefaultLexicon.UNKNOWN) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
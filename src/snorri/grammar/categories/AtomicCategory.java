@@ -5,6 +5,7 @@ import snorri.grammar.ComposeRule;
 public class AtomicCategory implements Category {
 
 	private String name;
+	private int id = CategoryTable.NONE;
 
 	public AtomicCategory(String name) {
 		this.name = name;
@@ -22,8 +23,16 @@ public class AtomicCategory implements Category {
 
 	@Override
 	public boolean equals(Object other) {
+		if (other instanceof Category && id != CategoryTable.NONE && ((Category) other).getId() != CategoryTable.NONE) {
+			return id == ((Category) other).getId();
+		}
 		return toString().contentEquals(other.toString());
 	}
+	
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
 
 	@Override
 	public ComposeRule getRule() {
@@ -34,5 +43,14 @@ public class AtomicCategory implements Category {
 	public char getDirection() {
 		return 0;
 	}
+	
+	@Override
+	public int getId() {
+		return id;
+	}
+	
+	void setId(int id) {
+		this.id = id;
+	}
 
 }
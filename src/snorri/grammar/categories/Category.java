@@ -11,5 +11,10 @@ public interface Category {
 	abstract public ComposeRule getRule();
 	
 	abstract public char getDirection();
+	
+	/**
+	 * @return the id assigned by <code>CategoryTable</code>, or <code>CategoryTable.NONE</code> if not interned
+	 */
+	abstract public int getId();
 		
 }
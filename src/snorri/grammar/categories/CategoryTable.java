@@ -0,0 +1,115 @@
+package snorri.grammar.categories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns categories to small integer ids and precomputes how they combine.
+ *
+ * Two categories get the same id exactly when they have the same string representation. Once every category has been
+ * interned, <code>build()</code> fills lookup tables for forward and backward application, so the chart parser can
+ * combine categories with array lookups instead of building strings.
+ */
+public final class CategoryTable {
+
+	/** The id of a category that has not been interned yet, and the result of an application that fails. */
+	public static final int NONE = -1;
+
+	private static final Map<String, Integer> ids = new HashMap<>();
+	private static final List<Category> categories = new ArrayList<>();
+
+	private static int[][] forward = new int[0][0];
+	private static int[][] backward = new int[0][0];
+
+	private CategoryTable() {
+	}
+
+	/**
+	 * Intern a category and any categories it is built from.
+	 *
+	 * @return The id of the category.
+	 */
+	public static synchronized int intern(Category category) {
+		if (category.getId() != NONE) {
+			return category.getId();
+		}
+
+		if (category instanceof DerivedCategory) {
+			intern(((DerivedCategory) category).getLeft());
+			intern(((DerivedCategory) category).getRight());
+		}
+
+		String key = category.toString();
+		Integer id = ids.get(key);
+		if (id == null) {
+			id = categories.size();
+			ids.put(key, id);
+			categories.add(category);
+		}
+		setId(category, id);
+		return id;
+	}
+
+	/** Precompute forward and backward application between every pair of interned categories. */
+	public static synchronized void build() {
+		int n = categories.size();
+		forward = new int[n][n];
+		backward = new int[n][n];
+		for (int[] row : forward) {
+			Arrays.fill(row, NONE);
+		}
+		for (int[] row : backward) {
+			Arrays.fill(row, NONE);
+		}
+
+		for (Category category : categories) {
+			if (!(category instanceof DerivedCategory)) {
+				continue;
+			}
+			DerivedCategory function = (DerivedCategory) category;
+			if (function.getDirection() == DerivedCategory.RIGHT) {
+				forward[function.getId()][function.getRight().getId()] = function.getLeft().getId();
+			} else if (function.getDirection() == DerivedCategory.LEFT) {
+				backward[function.getId()][function.getLeft().getId()] = function.getRight().getId();
+			}
+		}
+	}
+
+	/**
+	 * Look up forward application, where a function of the form <code>X / Y</code> takes the argument to its right.
+	 *
+	 * @return The id of the resulting category, or <code>NONE</code> if the categories do not combine.
+	 */
+	public static int applyForward(int function, int argument) {
+		return forward[function][argument];
+	}
+
+	/**
+	 * Look up backward application, where a function of the form <code>Y \ X</code> takes the argument to its left.
+	 *
+	 * @return The id of the resulting category, or <code>NONE</code> if the categories do not combine.
+	 */
+	public static int applyBackward(int function, int argument) {
+		return backward[function][argument];
+	}
+
+	public static Category get(int id) {
+		return categories.get(id);
+	}
+
+	public static int size() {
+		return categories.size();
+	}
+
+	private static void setId(Category category, int id) {
+		if (category instanceof AtomicCategory) {
+			((AtomicCategory) category).setId(id);
+		} else if (category instanceof DerivedCategory) {
+			((DerivedCategory) category).setId(id);
+		}
+	}
+
+}
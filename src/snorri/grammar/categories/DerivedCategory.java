@@ -11,6 +11,7 @@ public class DerivedCategory implements Category {
 	private Category right;
 	private char direction;
 	private ComposeRule rule;
+	private int id = CategoryTable.NONE;
 
 	public DerivedCategory(Category left, char direction, Category right, ComposeRule rule) {
 		this.left = left;
@@ -25,6 +26,11 @@ public class DerivedCategory implements Category {
 	
 	@Override
 	public Category apply(Category other) {
+		if (id != CategoryTable.NONE && other.getId() != CategoryTable.NONE) {
+			int result = direction == RIGHT ? CategoryTable.applyForward(id, other.getId())
+					: CategoryTable.applyBackward(id, other.getId());
+			return result == CategoryTable.NONE ? null : CategoryTable.get(result);
+		}
 		String otherString = other.toString();
 		if (direction == LEFT && left.toString().equals(otherString)) {
 			return right;
@@ -51,9 +57,17 @@ public class DerivedCategory implements Category {
 
 	@Override
 	public boolean equals(Object other) {
+		if (other instanceof Category && id != CategoryTable.NONE && ((Category) other).getId() != CategoryTable.NONE) {
+			return id == ((Category) other).getId();
+		}
 		return toString().contentEquals(other.toString());
 	}
 	
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+	
 	@Override
 	public ComposeRule getRule() {
 		return rule;
@@ -63,5 +77,22 @@ public class DerivedCategory implements Category {
 	public char getDirection() {
 		return direction;
 	}
+	
+	public Category getLeft() {
+		return left;
+	}
+	
+	public Category getRight() {
+		return right;
+	}
+	
+	@Override
+	public int getId() {
+		return id;
+	}
+	
+	void setId(int id) {
+		this.id = id;
+	}
 
 }
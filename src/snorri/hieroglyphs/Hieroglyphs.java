@@ -1,31 +1,51 @@
 package snorri.hieroglyphs;
 
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.net.MalformedURLException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import javax.swing.ImageIcon;
 
 import snorri.grammar.ChartParser;
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.util.Util;
 
 public class Hieroglyphs {
 
-	private static final HashMap<String, BufferedImage> glyphIcons;
+	/**
+	 * The HTML for each glyph, built when it is loaded so that transliterating never touches the filesystem. It only
+	 * refers to the image, so the images themselves are decoded the first time each glyph is drawn as an icon.
+	 */
+	private static final HashMap<String, String> htmlGlyphs;
+	private static final Map<String, ImageIcon> icons = new ConcurrentHashMap<>();
+	private static final Map<String, ImageIcon> smallIcons = new ConcurrentHashMap<>();
 	
 	private static final int SMALL_GLYPH_HEIGHT = 20;
+	private static final int TRANSLITERATION_CACHE_SIZE = 256;
+	
+	/** Transliterated spells, keyed by orthography. */
+	private static final Map<String, String> transliterations = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > TRANSLITERATION_CACHE_SIZE;
+		}
+		
+	};
 	
 	static {
 		
-		glyphIcons = new HashMap<>();
+		htmlGlyphs = new HashMap<>();
 		
 		File dir = Main.getFile("/textures/hieroglyphs");
 		
@@ -36,8 +56,7 @@ public class Hieroglyphs {
 					continue;
 				}
 				
-				String name = Util.removeExtension(glyph.getName());
-				glyphIcons.put(name, loadImage(name));
+				htmlGlyphs.put(Util.removeExtension(glyph.getName()), loadHTMLGlyph(glyph));
 			}
 		} else {
 			Debug.logger.severe("Could not find HTML glyph directory.");
@@ -46,25 +65,37 @@ public class Hieroglyphs {
 	}
 	
 	public static Set<String> getGlyphs() {
-		return glyphIcons.keySet();
+		return htmlGlyphs.keySet();
 	}
 	
 	public static void load() {
-		Debug.logger.info(glyphIcons.size() + " HTML glyphs loaded.");
+		Debug.logger.info(htmlGlyphs.size() + " HTML glyphs loaded.");
 	}
 		
+	/**
+	 * Replace each word of a spell that has a glyph with the HTML for that glyph.
+	 *
+	 * The result is cached, so redrawing the same spell is a single lookup.
+	 */
 	public static String transliterate(String raw) {
-		List<String> out = new ArrayList<>();
-		nextWord: for (String word : ChartParser.tokenize(raw)) {
-			for (String glyph : getGlyphs()) {
-				if (word.equals(glyph)) {
-					out.add(getHTMLGlyph(glyph));
-					continue nextWord;
-				}
+		synchronized (transliterations) {
+			String cached = transliterations.get(raw);
+			if (cached != null) {
+				return cached;
 			}
-			out.add(word);
 		}
-		return String.join("", out);
+		
+		StringBuilder out = new StringBuilder();
+		for (String word : ChartParser.tokenize(raw)) {
+			String glyph = htmlGlyphs.get(word);
+			out.append(glyph == null ? word : glyph);
+		}
+		String html = out.toString();
+		
+		synchronized (transliterations) {
+			transliterations.put(raw, html);
+		}
+		return html;
 	}
 	
 	static String getPath(String raw) {
@@ -72,10 +103,10 @@ public class Hieroglyphs {
 	}
 	
 	public static String getHTMLGlyph(String raw) {
-		File f = Main.getFile(getPath(raw));
-		if (!f.exists()) {
-			return null;
-		}
+		return htmlGlyphs.get(raw);
+	}
+	
+	private static String loadHTMLGlyph(File f) {
 		try {
 			return "<img class='hiero' src=\'" + f.toURI().toURL() + "'/>";
 		} catch (MalformedURLException e) {
@@ -85,28 +116,22 @@ public class Hieroglyphs {
 	}
 		
 	public static ImageIcon getIcon(String raw) {
-		Image image = getImage(raw);
-		if (image == null) {
-			return null;
-		}
-		return new ImageIcon(image);
+		BufferedImage image = getImage(raw);
+		return image == null ? null : icons.computeIfAbsent(raw, r -> new ImageIcon(image));
 	}
 	
+	/** @return the icon scaled to the height of a row in the vocab table */
 	public static ImageIcon getSmallIcon(String raw) {
-		Image image = getImage(raw);
-		if (image == null) {
-			return null;
-		}
-		return new ImageIcon(Util.resize(image, 0, SMALL_GLYPH_HEIGHT));
+		BufferedImage image = getImage(raw);
+		return image == null ? null : smallIcons.computeIfAbsent(raw,
+				r -> new ImageIcon(Util.resize(image, 0, SMALL_GLYPH_HEIGHT)));
 	}
 	
 	public static BufferedImage getImage(String raw) {
-		return glyphIcons.get(raw);
-	}
-	
-	//is it necessary that things are buffered images? idk
-	private static BufferedImage loadImage(String raw) {
-		return Util.getBufferedImage(Main.getImage(getPath(raw)));
+		if (!htmlGlyphs.containsKey(raw)) {
+			return null;
+		}
+		return Assets.getImage(getPath(raw));
 	}
 	
 }
@@ -66,21 +66,37 @@ public class Inventory implements Serializable, DropContainer<Droppable> {
 	}
 	
 	public void render(GameWindow window, Graphics g) {
-		drawItemContainer(g, 0, false, weaponSlot, Weapon.class);
+		renderSlots(g);
+		renderCooldowns(g);
+	}
+	
+	/**
+	 * Draw the item slots without their cooldown arcs.
+	 * 
+	 * This only changes when an item is swapped or goes on or off cooldown, so it can be cached.
+	 */
+	public void renderSlots(Graphics g) {
+		drawItemContainer(g, 0, false, weaponSlot);
 //		TODO: Add back multiple papyrusSlots.
-		drawItemContainer(g, 1, false, papyrusSlot, Papyrus.class);
+		drawItemContainer(g, 1, false, papyrusSlot);
 	}
 	
-	private void drawItemContainer(Graphics g, int i, boolean top, Item item, Class<? extends Item> slotType) {
-		drawItemContainer(g, i, top, item, slotType, item != null && item.canCast());
+	/** Draw the cooldown arcs for the item slots, which change every frame. */
+	public void renderCooldowns(Graphics g) {
+		if (weaponSlot != null) {
+			weaponSlot.drawCooldownArc(g, 0, false, weaponSlot.canCast());
+		}
+		if (papyrusSlot != null) {
+			papyrusSlot.drawCooldownArc(g, 1, false, papyrusSlot.canCast());
+		}
 	}
 	
-	private void drawItemContainer(Graphics g, int i, boolean top, Item item, Class<? extends Item> slotType, boolean flag) {
+	private void drawItemContainer(Graphics g, int i, boolean top, Item item) {
 		if (item == null) {
 			Item.drawEmpty(g, i, top);
 		}
 		else {
-			item.drawThumbnail(g, i, top, flag);
+			item.drawFrame(g, i, top, item.canCast());
 		}
 	}
 	
@@ -140,4 +156,8 @@ public class Inventory implements Serializable, DropContainer<Droppable> {
 		return mana;
 	}
 	
+	public void setMana(ManaManager mana) {
+		this.mana = mana;
+	}
+	
 }
\ No newline at end of file
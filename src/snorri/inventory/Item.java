@@ -11,9 +11,11 @@ import javax.swing.ImageIcon;
 import snorri.animations.Animation;
 import snorri.collisions.CircleCollider;
 import snorri.events.CastEvent;
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.semantics.CommandStatus;
+import snorri.util.Lazy;
 import snorri.util.Util;
 import snorri.windows.GamePanel;
 import snorri.windows.GameWindow;
@@ -71,12 +73,12 @@ public abstract class Item implements Droppable {
 
 		//TODO(#46): Allow these to be Animations in addition to BufferedImages.
 		EMPTY,
-		PAPYRUS(Papyrus.class, Main.getImage("/textures/items/papyrus.png")),
-		SLING(Weapon.class, Main.getImage("/textures/items/sling.png"), 34d, 0.45, "/sound/arrow.wav"),
-		PELLET(5, Orb.class, Main.getImage("/textures/items/pellet.png"), new Animation("/textures/objects/pellet.png")),
-		SLOW_SLING(Weapon.class, Main.getImage("/textures/items/sling.png"), 34d, 2d, "/sound/arrow.wav"),
-		BOW(Weapon.class, Main.getImage("/textures/items/bow.png"), 75d, 0.6, "/sound/arrow.wav"),
-		ARROW(5, Orb.class, Main.getImage("/textures/items/arrow.png"), new Animation("/textures/objects/pellet.png")),
+		PAPYRUS(Papyrus.class, "/textures/items/papyrus.png"),
+		SLING(Weapon.class, "/textures/items/sling.png", 34d, 0.45, "/sound/arrow.wav"),
+		PELLET(5, Orb.class, "/textures/items/pellet.png", new Animation("/textures/objects/pellet.png")),
+		SLOW_SLING(Weapon.class, "/textures/items/sling.png", 34d, 2d, "/sound/arrow.wav"),
+		BOW(Weapon.class, "/textures/items/bow.png", 75d, 0.6, "/sound/arrow.wav"),
+		ARROW(5, Orb.class, "/textures/items/arrow.png", new Animation("/textures/objects/pellet.png")),
 		SNAKE_BITE(Weapon.class, null, 75d, 1d, "/sound/arrow.wav"),
 		VENOM(5, Orb.class, null, new Animation("/textures/objects/venom.png")),
 		CROCODILE_BITE(MeleeWeapon.class, null, 100d, 1d, "/sound/arrow.wav", 50, new CircleCollider(100)),
@@ -86,31 +88,31 @@ public abstract class Item implements Droppable {
 		private int maxQuantity = 1; //number of inventory slots; use Consumable class with data field for charges
 		private boolean enchantable = true;
 		private Object[] args;
-		private BufferedImage texture;
+		private Lazy<BufferedImage> texture;
 		//private Image inventoryImage;
 		
 		ItemType() { //only use this for empty item
 		}
 		
-		ItemType(Class<? extends Item> c, BufferedImage texture, Object...args) {
+		ItemType(Class<? extends Item> c, String texture, Object...args) {
 			this.c = c;
 			this.args = args;
-			this.texture = Util.resize(texture, ENTITY_SIZE, 0);
+			this.texture = new Lazy<>(() -> texture == null ? null : Util.resize(Assets.getImage(texture), ENTITY_SIZE, 0));
 		}
 
 		// we need to put maxQuantity as the first argument to avoid ambiguity
 		// (lol)
-		ItemType(int maxQuantity, Class<? extends Item> c, BufferedImage texture, Object... args) {
+		ItemType(int maxQuantity, Class<? extends Item> c, String texture, Object... args) {
 			this(c, texture, args);
 			this.maxQuantity = maxQuantity;
 		}
 		
-		ItemType(boolean enchantable, Class<? extends Item> c, BufferedImage texture, Object... args) {
+		ItemType(boolean enchantable, Class<? extends Item> c, String texture, Object... args) {
 			this(c, texture, args);
 			this.enchantable = enchantable;
 		}
 		
-		ItemType(int maxQuantity, boolean enchantable, Class<? extends Item> c, BufferedImage texture, Object... args) {
+		ItemType(int maxQuantity, boolean enchantable, Class<? extends Item> c, String texture, Object... args) {
 			this(c, texture, args);
 			this.maxQuantity = maxQuantity;
 			this.enchantable = enchantable;
@@ -126,7 +128,7 @@ public abstract class Item implements Droppable {
 		}
 		
 		public BufferedImage getTexture() {
-			return texture;
+			return texture == null ? null : texture.get();
 		}
 		
 		public boolean isEnchantable() {
@@ -347,13 +349,23 @@ public abstract class Item implements Droppable {
 	 * 	width of thumbnail drawn
 	 */
 	public int drawThumbnail(Graphics g, int i, boolean top, boolean selected) {
+		int width = drawFrame(g, i, top, selected);
+		drawCooldownArc(g, i, top, selected);
+		return width;
+	}
+	
+	/**
+	 * draws the parts of a thumbnail that do not change while the item is cooling down
+	 * @return
+	 * 	width of thumbnail drawn
+	 */
+	public int drawFrame(Graphics g, int i, boolean top, boolean selected) {
 		
 		BufferedImage border = getBorder(i, top, selected);
 		BufferedImage icon = getTexture();
 		
 		Vector pos = getPos(i, top);
 		Vector iconPos = pos.add(new Vector(border.getWidth(null) - icon.getWidth(null), border.getHeight(null) - icon.getHeight(null)).divide_(2));
-		Vector arcPos = pos.add(new Vector(border.getWidth(null) - ARC_SIZE, border.getHeight(null) - ARC_SIZE).divide_(2));
 		
 		if (selected) {
 			g.drawImage(border, pos.getX(), pos.getY(), null);
@@ -361,17 +373,29 @@ public abstract class Item implements Droppable {
 		} else {
 			g.drawImage(icon, iconPos.getX(), iconPos.getY(), null);
 			g.drawImage(border, pos.getX(), pos.getY(), null);
-			if (timer != null) {
-				g.setColor(getArcColor());
-				g.fillArc(arcPos.getX(), arcPos.getY(), ARC_SIZE, ARC_SIZE, 90, this.getTimer().getRatio(360));
-				g.setColor(Color.BLACK);
-			}
 		}
 					
 		return border.getWidth(null);
 		
 	}
 	
+	/**
+	 * draws the cooldown arc over an unselected thumbnail
+	 */
+	public void drawCooldownArc(Graphics g, int i, boolean top, boolean selected) {
+		
+		if (selected || timer == null) {
+			return;
+		}
+		
+		BufferedImage border = getBorder(i, top, selected);
+		Vector arcPos = getPos(i, top).add(new Vector(border.getWidth(null) - ARC_SIZE, border.getHeight(null) - ARC_SIZE).divide_(2));
+		g.setColor(getArcColor());
+		g.fillArc(arcPos.getX(), arcPos.getY(), ARC_SIZE, ARC_SIZE, 90, this.getTimer().getRatio(360));
+		g.setColor(Color.BLACK);
+		
+	}
+	
 	/**
 	 * draws an empty thumbnail and returns its width
 	 * @param g
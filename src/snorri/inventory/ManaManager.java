@@ -32,6 +32,14 @@ public class ManaManager implements Serializable, Droppable {
 		this(100d, 20d);
 	}
 	
+	public double getMaxMana() {
+		return maxMana;
+	}
+	
+	public double getManaRegen() {
+		return manaRegen;
+	}
+	
 	public void setMaxMana(final double maxMana) {
 		this.maxMana = maxMana;
 	}
@@ -44,6 +52,10 @@ public class ManaManager implements Serializable, Droppable {
 		return mana;
 	}
 	
+	public void setMana(double mana) {
+		this.mana = mana;
+	}
+	
 	public boolean spendIfHasMana(double cost) {
 		/** Return true if mana was spent, otherwise return false. */
 		if (mana >= cost) {
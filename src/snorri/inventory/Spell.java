@@ -25,7 +25,9 @@ public class Spell implements Serializable {
 	}
 	
 	public Spell copy() {
-		return new Spell(text);
+		Spell copy = new Spell(text);
+		copy.command = command;
+		return copy;
 	}
 	
 	public void compile() {
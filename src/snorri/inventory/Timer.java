@@ -59,4 +59,8 @@ public class Timer implements Serializable {
 		return currentTime;
 	}
 	
+	public void setTime(double time) {
+		currentTime = time;
+	}
+	
 }
@@ -26,6 +26,8 @@ public enum Key implements Binding {
 	SPACE(32, ' '),
 	ESC(27, ' '),
 	ENTER(10, ' '),
+	QUICK_SAVE(116, ' '), //F5
+	QUICK_LOAD(120, ' '), //F9
 	
 	E(69, 'e'), //spawn entity
 	DELETE(8, ' '), //delete entity
@@ -0,0 +1,169 @@
+package snorri.main;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Decodes images when they are first used rather than when the classes using them are initialized, and decodes the
+ * images a world is going to need on several threads while the world is loading.
+ *
+ * Each image is only decoded once, however many animations, tiles and icons use it. An image that is needed while it
+ * is being preloaded is waited for, rather than decoded a second time.
+ *
+ * The time spent decoding is recorded, along with how much of it was on the event dispatch thread, where it holds up
+ * the screen. <code>logReport</code> logs it together with the steps timed through <code>time</code>.
+ */
+public class Assets {
+
+	private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+	private static final int SLOWEST_REPORTED = 5;
+
+	private static final Map<String, Future<BufferedImage>> IMAGES = new ConcurrentHashMap<>();
+
+	private static final ExecutorService PRELOADER = Executors.newFixedThreadPool(THREADS, r -> {
+		Thread thread = new Thread(r, "Asset preloader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** How long each image decoded since the last report took, in nanoseconds. */
+	private static final Map<String, Long> decodeTimes = new ConcurrentHashMap<>();
+	private static final AtomicLong edtTime = new AtomicLong();
+
+	/** How long each step timed since the last report took, in nanoseconds, in the order they finished. */
+	private static final Map<String, Long> steps = new LinkedHashMap<>();
+
+	private Assets() {
+	}
+
+	/**
+	 * @return the image at a path (not package name), which is decoded the first time it is asked for, or
+	 *         <code>null</code> if it couldn't be
+	 */
+	public static BufferedImage getImage(String path) {
+		FutureTask<BufferedImage> task = new FutureTask<>(() -> decode(path));
+		Future<BufferedImage> image = IMAGES.putIfAbsent(path, task);
+		if (image == null) {
+			task.run();
+			image = task;
+		}
+		try {
+			return image.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Debug.logger.log(Level.SEVERE, "Failed to load image " + path + ".", e.getCause());
+			return null;
+		}
+	}
+
+	private static BufferedImage decode(String path) {
+		long start = System.nanoTime();
+		BufferedImage image = Main.getImage(path);
+		long time = System.nanoTime() - start;
+		decodeTimes.put(path, time);
+		if (SwingUtilities.isEventDispatchThread()) {
+			edtTime.addAndGet(time);
+		}
+		return image;
+	}
+
+	/**
+	 * Start decoding images in the background, so that they are ready when they are first used. Paths to folders, like
+	 * those of animations, preload every frame in the folder.
+	 * @return the number of images which weren't already loaded or being loaded
+	 */
+	public static int preload(Collection<String> paths) {
+		int started = 0;
+		for (String path : paths) {
+			for (String image : expand(path)) {
+				FutureTask<BufferedImage> task = new FutureTask<>(() -> decode(image));
+				if (IMAGES.putIfAbsent(image, task) == null) {
+					PRELOADER.execute(task);
+					started++;
+				}
+			}
+		}
+		Debug.logger.info("Preloading " + started + " images on " + THREADS + " threads.");
+		return started;
+	}
+
+	/** @return the paths of the images in a folder, in frame order, or just the path if it is an image */
+	public static List<String> expand(String path) {
+		List<String> images = new ArrayList<>();
+		File file = Main.getFile(path);
+		if (!file.isDirectory()) {
+			images.add(path);
+			return images;
+		}
+		String[] names = file.list();
+		Arrays.sort(names);
+		for (String name : names) {
+			if (name.endsWith(".png")) {
+				images.add(path + "/" + name);
+			}
+		}
+		return images;
+	}
+
+	/** Run one step of loading something, and record how long it took for the next report. */
+	public static void time(String step, Runnable runnable) {
+		long start = System.nanoTime();
+		runnable.run();
+		long time = System.nanoTime() - start;
+		synchronized (steps) {
+			steps.merge(step, time, Long::sum);
+		}
+	}
+
+	/**
+	 * Log how long each step timed since the last report took, and how much time went into decoding images, with the
+	 * slowest of them. Everything reported is then forgotten, so the next report only covers what came after.
+	 */
+	public static void logReport(String title) {
+		StringBuilder report = new StringBuilder(title + ":");
+		synchronized (steps) {
+			for (Map.Entry<String, Long> step : steps.entrySet()) {
+				report.append("\n\t" + step.getKey() + ": " + toMillis(step.getValue()) + " ms");
+			}
+			steps.clear();
+		}
+
+		List<Map.Entry<String, Long>> decoded = new ArrayList<>(decodeTimes.entrySet());
+		long total = 0;
+		for (Map.Entry<String, Long> image : decoded) {
+			decodeTimes.remove(image.getKey());
+			total += image.getValue();
+		}
+		report.append("\n\t" + decoded.size() + " images decoded in " + toMillis(total) + " ms, "
+				+ toMillis(edtTime.getAndSet(0)) + " ms of it on the event dispatch thread");
+
+		decoded.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+		for (Map.Entry<String, Long> image : decoded.subList(0, Math.min(SLOWEST_REPORTED, decoded.size()))) {
+			report.append("\n\t\t" + image.getKey() + ": " + toMillis(image.getValue()) + " ms");
+		}
+		Debug.logger.info(report.toString());
+	}
+
+	private static long toMillis(long nanos) {
+		return nanos / 1000000;
+	}
+
+}
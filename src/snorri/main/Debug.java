@@ -23,9 +23,12 @@ public class Debug {
 	private static final boolean DISABLE_ANTIALIASING = true;
 	private static final boolean WINDOWED_MODE = true;
 	private static final boolean SCALE = false;
+	private static final boolean RENDER_OFFSCREEN = false;
+	private static final boolean INTEGER_SCALING = false;
 	private static final boolean DISABLE_MASKING = false;
 	private static final boolean LOG_CHANGE_WORLD_EVENTS = true;
 	private static final boolean LOG_PATHFINDING_COMPONENTS = false;
+	private static final boolean COMPRESS_TILE_LAYERS = false;
 	
 	public static final Logger logger;
 	
@@ -101,6 +104,16 @@ public class Debug {
 		return SCALE;
 	}
 	
+	/** Render the world at a fixed resolution and scale it to the window in one blit. */
+	public static boolean renderedOffscreen() {
+		return RENDER_OFFSCREEN;
+	}
+	
+	/** Scale offscreen renders by whole numbers with nearest neighbor sampling instead of bilinear filtering. */
+	public static boolean integerScaled() {
+		return INTEGER_SCALING;
+	}
+	
 	public static boolean maskingDisabled() {
 		return DISABLE_MASKING;
 	}
@@ -112,6 +125,11 @@ public class Debug {
 	public static boolean pathfindingComponentsLogged() {
 		return LOG_PATHFINDING_COMPONENTS;
 	}
+	
+	/** Deflate the tiles of saved tile layers. Either kind of file can be loaded regardless. */
+	public static boolean tileLayersCompressed() {
+		return COMPRESS_TILE_LAYERS;
+	}
 
 	public static void castWTFMode(String s, CastEvent e) {
 		Spell spell = Spell.fromString(s);
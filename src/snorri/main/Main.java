@@ -12,6 +12,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.logging.Level;
 
 import javax.imageio.ImageIO;
@@ -33,6 +34,7 @@ import snorri.windows.GameWindow;
 import snorri.windows.LevelEditor;
 import snorri.windows.LoadingScreen;
 import snorri.windows.MainMenu;
+import snorri.world.AssetManifest;
 import snorri.world.Playable;
 import snorri.world.Vector;
 
@@ -95,11 +97,11 @@ public class Main {
 			e.printStackTrace();
 		}
 		
-		DefaultLexicon.load();
-		Hieroglyphs.load();
-		RandomDrop.load();
-		Portraits.load();
-		setupFont();
+		Assets.time("Lexicon", DefaultLexicon::load);
+		Assets.time("Hieroglyphs", Hieroglyphs::load);
+		Assets.time("Drops", RandomDrop::load);
+		Assets.time("Portraits", Portraits::load);
+		Assets.time("Font", Main::setupFont);
 								
 		frame = new JFrame("The Book of Thoth");
 		frame.setSize(DEFAULT_WIDTH, DEFAULT_HEIGHT);
@@ -116,7 +118,8 @@ public class Main {
 			frame.setExtendedState(JFrame.MAXIMIZED_BOTH);
 		}
 
-		launchMenu();
+		Assets.time("Menu", Main::launchMenu);
+		Assets.logReport("Started in " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
 
 	}
 
@@ -282,13 +285,15 @@ public class Main {
 		loadInto(new Runnable() {
 			@Override
 			public void run() {
-				Playable world;
-				try {
-					world = Playable.getLoaded(path, p);
-					setWindow(new GameWindow(world));
-				} catch (IOException | YamlException e) {
-					Debug.logger.log(Level.SEVERE, "Failed to launch world at " + path.getPath() + ".", e);
-				}
+				Assets.preload(AssetManifest.read(path));
+				Assets.time("Load " + path.getName(), () -> {
+					try {
+						setWindow(new GameWindow(Playable.getLoaded(path, p)));
+					} catch (IOException | YamlException e) {
+						Debug.logger.log(Level.SEVERE, "Failed to launch world at " + path.getPath() + ".", e);
+					}
+				});
+				Assets.logReport("Launched " + path.getName());
 			}
 		});
 	}
@@ -1,9 +1,17 @@
 package snorri.masking;
 
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.TexturePaint;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import snorri.main.Debug;
 import snorri.world.Tile;
@@ -47,11 +55,18 @@ public class AlphaMask {
 		
 		assert MASKS.length == 16;
 		assert CORNER_MASKS.length == 16;
+		prerasterize();
 		Debug.logger.info("Alpha masks initialized.");
 	}
 
 	private final Area mask;
 	private final Path2D border;
+	
+	/** The mask and its border rasterized into the alpha channel of a tile-sized image. */
+	private BufferedImage alphaImage;
+	
+	/** Textures that have already been cut out by this mask. Keys are compared by identity. */
+	private final Map<BufferedImage, BufferedImage> maskedTextures = Collections.synchronizedMap(new WeakHashMap<>());
 
 	public AlphaMask(Area area, Path2D border) {
 		mask = area;
@@ -80,6 +95,56 @@ public class AlphaMask {
 	public Path2D getBorder() {
 		return border;
 	}
+	
+	/**
+	 * Get the alpha image for this mask, rasterizing it on first use.
+	 * 
+	 * The image is opaque wherever the mask (or its border) would be filled and transparent elsewhere.
+	 */
+	public synchronized BufferedImage getAlphaImage() {
+		if (alphaImage == null) {
+			alphaImage = new BufferedImage(Tile.WIDTH, Tile.WIDTH, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = alphaImage.createGraphics();
+			g.setColor(Color.WHITE);
+			g.fill(mask);
+			g.draw(border);
+			g.dispose();
+		}
+		return alphaImage;
+	}
+	
+	/**
+	 * Get a tile-sized copy of texture cut out by this mask.
+	 * 
+	 * The result is cached, so drawing a masked tile is a single blit after the first time.
+	 * 
+	 * @param texture The texture to mask, which is tiled from the top-left corner.
+	 * @return The masked texture.
+	 */
+	public BufferedImage getMaskedTexture(BufferedImage texture) {
+		BufferedImage masked = maskedTextures.get(texture);
+		if (masked == null) {
+			masked = new BufferedImage(Tile.WIDTH, Tile.WIDTH, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = masked.createGraphics();
+			g.setPaint(new TexturePaint(texture, new Rectangle(0, 0, texture.getWidth(), texture.getHeight())));
+			g.fillRect(0, 0, Tile.WIDTH, Tile.WIDTH);
+			g.setComposite(AlphaComposite.DstIn);
+			g.drawImage(getAlphaImage(), 0, 0, null);
+			g.dispose();
+			maskedTextures.put(texture, masked);
+		}
+		return masked;
+	}
+	
+	/** Rasterize all of the edge and corner masks ahead of time. */
+	public static void prerasterize() {
+		for (AlphaMask m : MASKS) {
+			m.getAlphaImage();
+		}
+		for (AlphaMask m : CORNER_MASKS) {
+			m.getAlphaImage();
+		}
+	}
 
 	private static AlphaMask getTileMask() {
 		Area a = new Area(new Rectangle(0, 0, Tile.WIDTH, Tile.WIDTH));
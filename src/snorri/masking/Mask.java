@@ -1,9 +1,6 @@
 package snorri.masking;
 
 import java.awt.Graphics2D;
-import java.awt.Rectangle;
-import java.awt.TexturePaint;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
@@ -146,13 +143,13 @@ public class Mask implements Comparable<Mask>, Comparator<Mask> {
 		return bitmask;
 	}
 
+	/**
+	 * Draw the base texture cut out by this mask, with its top-left corner at pos.
+	 * 
+	 * The mask is prerasterized, so this is a single blit of a cached image.
+	 */
 	public void drawMask(Graphics2D gr, Vector pos) {
-		Area area = getArea().createTransformedArea(AffineTransform.getTranslateInstance(pos.getX(), pos.getY()));
-		BufferedImage tex = getBaseTexture();
-		gr.setPaint(new TexturePaint(tex, new Rectangle(0, 0, tex.getWidth(), tex.getHeight())));
-		gr.fill(area);
-		gr.draw(getBorder());
-		gr.setPaint(null);
+		gr.drawImage(getAlphaMask().getMaskedTexture(getBaseTexture()), pos.getX(), pos.getY(), null);
 	}
 
 	/**
@@ -1,5 +1,9 @@
 package snorri.modifiers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.entities.Entity;
 import snorri.inventory.Timer;
 
@@ -17,4 +21,13 @@ public abstract class Modifier<E extends Entity> {
 		return timer.isOffCooldown();
 	}
 	
+	/** Write how far along this modifier is, for quick-saves. Subclasses with more state should extend this. */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeDouble((double) timer.getTime());
+	}
+	
+	public void readState(DataInput in) throws IOException {
+		timer.setTime(in.readDouble());
+	}
+	
 }
@@ -1,5 +1,9 @@
 package snorri.modifiers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import snorri.entities.Unit;
 
 public class SlowModifier extends Modifier<Unit> {
@@ -30,5 +34,17 @@ public class SlowModifier extends Modifier<Unit> {
 		u.modifySpeed(magnitude);
 		return super.modifyAndCheckTimer(u, deltaTime);
 	}
+	
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeDouble(magnitude);
+	}
+	
+	@Override
+	public void readState(DataInput in) throws IOException {
+		super.readState(in);
+		magnitude = in.readDouble();
+	}
 
 }
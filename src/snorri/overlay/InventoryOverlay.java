@@ -40,6 +40,8 @@ import javax.swing.event.ListSelectionListener;
 import snorri.events.CastEvent.Caster;
 import snorri.grammar.ChartParser;
 import snorri.grammar.DefaultLexicon;
+import snorri.grammar.Tokens;
+import snorri.grammar.categories.Category;
 import snorri.hieroglyphs.Hieroglyphs;
 import snorri.inventory.DropContainer;
 import snorri.inventory.Droppable;
@@ -85,6 +87,8 @@ public class InventoryOverlay extends Overlay implements MouseListener, ListSele
 	private final JTable vocabBox;
 	private final JButton enchantButton;
 	private final JEditorPane field;
+	/** The chart for the text in the spell window, kept up to date as it is edited. */
+	private final ChartParser draft = new ChartParser();
 	
 	private final JList<Item> list;
 	private final ListModel<Item> model;
@@ -333,17 +337,52 @@ public class InventoryOverlay extends Overlay implements MouseListener, ListSele
 		field.setText(Hieroglyphs.transliterate(getItem().getSpell().getOrthography()));
 	}
 	
-	private static boolean isGrammatical(final String text) {
-		return  text.equals("") || ChartParser.parseText(text) != null;
+	/**
+	 * Bring the draft chart in line with the words in the spell window. Only the words from the first edited one on are
+	 * reparsed, so typing at the end of a spell takes the same time however long the spell is.
+	 */
+	private void updateDraft(Tokens words) {
+		List<String> parsed = draft.getTokens();
+		int common = 0;
+		while (common < parsed.size() && common < words.size() && parsed.get(common).equals(words.getWord(common))) {
+			common++;
+		}
+		while (parsed.size() > common) {
+			draft.pop();
+		}
+		for (int i = common; i < words.size(); i++) {
+			if (!draft.push(words.getWord(i), words.getId(i))) {
+				break;
+			}
+		}
+	}
+	
+	private boolean isGrammatical(Tokens words) {
+		return words.size() == 0 || (draft.getTokens().size() == words.size() && draft.isGrammatical());
+	}
+	
+	/** Preview how the text in the spell window parses so far. */
+	private String getPreview(Tokens words) {
+		int parsed = draft.getTokens().size();
+		if (parsed < words.size()) {
+			return "Unknown word: " + words.getWord(parsed) + " at character " + words.getOffset(parsed);
+		}
+		if (parsed == 0) {
+			return null;
+		}
+		List<Category> categories = draft.getCategories(0, parsed - 1);
+		return categories.isEmpty() ? "Not a phrase" : categories.get(0).toString();
 	}
 	
 	private void checkParse(DocumentEvent e) {
-		String text = getTagless();
+		Tokens words = Tokens.tokenize(getTagless());
+		updateDraft(words);
+		field.setToolTipText(getPreview(words));
 		if (Debug.allHieroglyphsUnlocked() || editMode) {
-			enchantButton.setEnabled(isGrammatical(text));
+			enchantButton.setEnabled(isGrammatical(words));
 		}
 		else {
-			enchantButton.setEnabled(caster.getLexicon().contains(ChartParser.tokenize(text)) && isGrammatical(text));
+			enchantButton.setEnabled(words.size() > 0 && caster.getLexicon().contains(words) && isGrammatical(words));
 		}
 	}
 	
@@ -65,9 +65,11 @@ public class Go implements Definition<Command> {
 				Vector trans = e.getDestination().sub(e.getSecondPerson().getPos());
 				if (trans.magnitude() < DELETE_MARGIN) {
 					e.getWorld().delete(e.getSecondPerson());
+					e.invalidateTargets();
 					return CommandStatus.DONE;
 				}
 				((Movable) e.getSecondPerson()).translateNormalized(e.getWorld(), trans, SPEED * e.getDeltaTime());
+				e.invalidateTargets();
 				return CommandStatus.DONE;
 			}
 			return CommandStatus.FAILED;
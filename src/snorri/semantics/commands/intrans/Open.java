@@ -1,6 +1,7 @@
 package snorri.semantics.commands.intrans;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import snorri.audio.Audio;
@@ -28,24 +29,20 @@ public class Open implements Definition<Command> {
 		DOOR_TYPES.add(UnifiedTileType.DOOR);
 	}
 
+	/** Open the door at pos, along with every door tile connected to it. */
 	public static boolean openDoor(World w, Vector pos) {
-		Tile tile = w.getTileLayer().getTileGrid(pos);
-		if (!isDoor(tile)) {
+		if (!isDoor(w.getTileLayer().getTileGrid(pos))) {
 			return false;
 		}
 		
-		// Do the door replacement at this tile.
-		Tile replacementTile = tile.getType().newReplacementTile(tile);
-		if (replacementTile == null) {
-			throw new IllegalArgumentException("The replacement type for a door must be defined.");
-		}
-		w.wrapGridUpdate(pos, new Tile(replacementTile));
-		TriggerType.DOOR_OPEN.activate(pos);
-		
-		// Recurse on neighbors of this tile.
-		w.getTileLayer().forEachNeighborOf(pos, neighborPos -> {
-			openDoor(w, neighborPos);
+		List<Vector> opened = w.wrapGridFloodFill(pos, Open::isDoor, tile -> {
+			Tile replacementTile = tile.getType().newReplacementTile(tile);
+			if (replacementTile == null) {
+				throw new IllegalArgumentException("The replacement type for a door must be defined.");
+			}
+			return new Tile(replacementTile);
 		});
+		TriggerType.DOOR_OPEN.activateAll(opened);
 		return true;
 	}
 	
@@ -71,6 +68,7 @@ public class Open implements Definition<Command> {
 			
 			if (checker instanceof Sarcophagus) {
 				e.getWorld().delete(checker);
+				e.invalidateTargets();
 				return CommandStatus.DONE;
 			}
 
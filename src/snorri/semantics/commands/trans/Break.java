@@ -1,6 +1,5 @@
 package snorri.semantics.commands.trans;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
@@ -22,21 +21,11 @@ import snorri.world.World;
 
 public class Break implements Definition<Lambda<Noun, Command>> {
 	
-	private static final List<Vector> TRIPWIRE_CONNECTIONS = new ArrayList<>();
 	private static final HashSet<TileType> TRIPWIRES = new HashSet<>();
 	
 	static {
-		
-		Vector[] unitVectors = new Vector[] {new Vector(0, 1), new Vector(1, 0)};
-		for (Vector unitVector : unitVectors) {
-			for (int x = -1; x <= 1; x++) {
-				TRIPWIRE_CONNECTIONS.add(unitVector.copy().multiply_(x));
-			}
-		}
-		
 		TRIPWIRES.add(UnifiedTileType.TRIPWIRE);
 		TRIPWIRES.add(UnifiedTileType.TRIPWIRE_END);
-		
 	}
 	
 	/**
@@ -64,6 +53,7 @@ public class Break implements Definition<Lambda<Noun, Command>> {
 				
 				if (target instanceof Smashable) {
 					((Smashable) target).smash(e.getWorld(), e.getDeltaTime());
+					e.invalidateTargets();
 					return CommandStatus.FAILED;
 				}
 				
@@ -94,7 +84,7 @@ public class Break implements Definition<Lambda<Noun, Command>> {
 	}
 	
 	/**
-	 * Recursively cut the tripwire at this grid position.
+	 * Cut the whole tripwire connected to this grid position.
 	 * @param v The grid position at which to cut.
 	 */
 	public static boolean tryToCutTripWire(World world, Vector v) {
@@ -102,16 +92,13 @@ public class Break implements Definition<Lambda<Noun, Command>> {
 		if (!isTripwire(foreground.getTileGrid(v))) {
 			return false;
 		}
-		world.wrapGridUpdate(v, new Tile(UnifiedTileType.EMPTY));
-		TriggerType.TRIP.activate(v);
-		for (Vector trans : TRIPWIRE_CONNECTIONS) {
-			tryToCutTripWire(world, v.copy().add_(trans));
-		}
+		List<Vector> cut = world.wrapGridFloodFill(v, Break::isTripwire, tile -> new Tile(UnifiedTileType.EMPTY));
+		TriggerType.TRIP.activateAll(cut);
 		return true;
 	}
 
 	public static boolean isTripwire(Tile tileGrid) {
-		return TRIPWIRES.contains(tileGrid.getType());
+		return tileGrid != null && TRIPWIRES.contains(tileGrid.getType());
 	}
 
 }
@@ -56,6 +56,7 @@ public class Create implements Definition<Lambda<Noun, Command>> {
 					if (spawned == null) {
 						return CommandStatus.FAILED;
 					}
+					e.invalidateTargets();
 					return CommandStatus.DONE;
 				}
 				
@@ -37,6 +37,7 @@ public class Grow implements Definition<Lambda<Noun, Command>> {
 					try {
 						Entity ent = (Entity) ((Class<? extends Entity>) obj).getConstructor(Vector.class).newInstance(e.getLocative());
 						e.getWorld().add(ent);
+						e.invalidateTargets();
 						return CommandStatus.DONE;
 					} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
 							| NoSuchMethodException | SecurityException e2) {
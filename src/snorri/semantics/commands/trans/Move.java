@@ -28,6 +28,7 @@ public class Move implements Definition<Lambda<Noun, Command>> {
 				
 				if (obj instanceof Entity) {
 					e.getWorld().getEntityTree().move((Entity) obj, e.getDestination());
+					e.invalidateTargets();
 					return CommandStatus.DONE;
 				}
 				return CommandStatus.FAILED;
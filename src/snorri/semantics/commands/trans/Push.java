@@ -40,6 +40,7 @@ public class Push implements Definition<Lambda<Noun, Command>> {
 				Vector velocity = target.sub(entity.getPos()).scale(FORCE);
 				entity.setPos(entity.getPos().add(DELTA));
 				entity.setVelocity(velocity);
+				e.invalidateTargets();
 				return CommandStatus.DONE;
 			};
 		};
@@ -42,6 +42,7 @@ public class Summon implements Definition<Lambda<Noun, Command>> {
 				if (spawned == null) {
 					return CommandStatus.FAILED;
 				}
+				e.invalidateTargets();
 				return CommandStatus.DONE;
 			};
 		};
@@ -1,9 +1,13 @@
 package snorri.triggers;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import snorri.main.Debug;
 import snorri.world.World;
@@ -13,6 +17,8 @@ public class TriggerMap extends HashMap<TriggerType, List<Trigger>> {
 	private static final long serialVersionUID = 1L;
 	
 	private boolean loaded = false;
+	/** The names of the triggers that have fired for each type, in order, so a quick-save can record them. */
+	private final Map<TriggerType, List<String>> fired = new EnumMap<>(TriggerType.class);
 
 	public TriggerMap() {
 		for (TriggerType type : TriggerType.values()) {
@@ -36,11 +42,41 @@ public class TriggerMap extends HashMap<TriggerType, List<Trigger>> {
 		for (Trigger t : get(type).toArray(new Trigger[0])) {
 			if (t.getObject(type).equals(object)) {
 				t.exec();
-				get(type).remove(t);
+				remove(type, t);
 			}
 		}
 	}
 	
+	/** Activate the triggers matching any of several objects, scanning the triggers of this type once. */
+	public void activateAll(TriggerType type, Collection<?> objects) {
+		Set<?> targets = new HashSet<>(objects);
+		for (Trigger t : get(type).toArray(new Trigger[0])) {
+			if (targets.contains(t.getObject(type))) {
+				t.exec();
+				remove(type, t);
+			}
+		}
+	}
+	
+	private void remove(TriggerType type, Trigger t) {
+		get(type).remove(t);
+		fired.computeIfAbsent(type, k -> new ArrayList<>()).add(t.getName());
+	}
+	
+	/** Remove a trigger that fired before a quick-save, without running its actions again. */
+	public void markFired(TriggerType type, String name) {
+		for (Trigger t : get(type)) {
+			if (t.getName().equals(name)) {
+				remove(type, t);
+				return;
+			}
+		}
+	}
+	
+	public Map<TriggerType, List<String>> getFired() {
+		return fired;
+	}
+	
 	public boolean contains(TriggerType type, Object object) {
 		for (Trigger t : get(type)) {
 			if (t.getObject(type) == object) {
@@ -1,5 +1,7 @@
 package snorri.triggers;
 
+import java.util.Collection;
+
 import snorri.main.Main;
 import snorri.windows.GameWindow;
 
@@ -37,4 +39,25 @@ public enum TriggerType {
 
 	}
 	
+	/**
+	 * Activate the triggers for several objects at once, e.g. every tile changed by a flood fill.
+	 * @see #activate(Object)
+	 */
+	public boolean activateAll(Collection<?> objects) {
+		
+		if (!(Main.getWindow() instanceof GameWindow)) {
+			return false;
+		}
+		
+		TriggerMap map = ((GameWindow) Main.getWindow()).getWorld().getTriggerMap();
+		if (map == null) {
+			return true;
+		}
+		if (!objects.isEmpty()) {
+			map.activateAll(this, objects);
+		}
+		return true;
+		
+	}
+	
 }
\ No newline at end of file
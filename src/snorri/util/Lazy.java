@@ -0,0 +1,37 @@
+package snorri.util;
+
+import java.util.function.Supplier;
+
+/**
+ * A value which is only computed the first time it is needed, by whichever thread needs it first. Other threads
+ * needing it at the same time wait for that computation instead of repeating it.
+ */
+public class Lazy<T> implements Supplier<T> {
+
+	private Supplier<T> supplier;
+	private volatile T value;
+	private volatile boolean computed = false;
+
+	public Lazy(Supplier<T> supplier) {
+		this.supplier = supplier;
+	}
+
+	@Override
+	public T get() {
+		if (!computed) {
+			synchronized (this) {
+				if (!computed) {
+					value = supplier.get();
+					computed = true;
+					supplier = null;
+				}
+			}
+		}
+		return value;
+	}
+
+	public boolean isComputed() {
+		return computed;
+	}
+
+}
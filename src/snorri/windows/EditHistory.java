@@ -0,0 +1,286 @@
+package snorri.windows;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import snorri.entities.Entity;
+import snorri.world.Editable;
+import snorri.world.TileLayer;
+import snorri.world.Tile;
+import snorri.world.Vector;
+import snorri.world.World;
+
+/**
+ * The level editor's undo and redo stacks, which hold what each edit changed rather than copies of the world. Undoing
+ * or redoing an edit takes time in proportion to the number of tiles and entities it changed.
+ *
+ * The stacks are bounded by the total number of changes they hold rather than by the number of edits, so that many
+ * small edits can be undone while a few huge ones don't use up the memory. Once there are more than
+ * <code>MAX_CHANGES</code>, the oldest edits are forgotten.
+ */
+class EditHistory {
+
+	static final int MAX_CHANGES = 1 << 20;
+
+	/** Something that was done in the editor, and knows how to take itself back. */
+	interface Edit {
+
+		void undo();
+
+		void redo();
+
+		/** @return the number of tiles and entities changed, which is what the history is bounded by */
+		int size();
+
+	}
+
+	/**
+	 * Tiles changed in one layer. A tile painted over several times, like during a drag, is only recorded once, with
+	 * what it was before the first change and after the last.
+	 */
+	static class TileEdit implements Edit {
+
+		private final TileLayer layer;
+		private int[] cells = new int[16];
+		private Tile[] before = new Tile[16];
+		private Tile[] after = new Tile[16];
+		private int size;
+
+		/** The index of each cell in the arrays, while this edit is still being made. */
+		private Map<Integer, Integer> indices = new HashMap<>();
+
+		TileEdit(TileLayer layer) {
+			this.layer = layer;
+		}
+
+		/** Change a tile and record the change. */
+		void setTileGrid(int x, int y, Tile tile) {
+			Tile old = layer.getTileGrid(x, y);
+			if (old == null || tile == null) {
+				return;
+			}
+			int cell = x * layer.getHeight() + y;
+			Integer index = indices.get(cell);
+			if (index != null) {
+				after[index] = tile;
+			} else if (!old.equals(tile)) {
+				if (size == cells.length) {
+					cells = Arrays.copyOf(cells, size * 2);
+					before = Arrays.copyOf(before, size * 2);
+					after = Arrays.copyOf(after, size * 2);
+				}
+				indices.put(cell, size);
+				cells[size] = cell;
+				before[size] = old;
+				after[size] = tile;
+				size++;
+			}
+			layer.setTileGrid(x, y, tile);
+		}
+
+		void setTilesGrid(List<Vector> positions, Tile tile) {
+			for (Vector pos : positions) {
+				setTileGrid(pos.getX(), pos.getY(), tile);
+			}
+		}
+
+		/** Stop recording changes, and let go of what was only needed while recording. */
+		private void finish() {
+			indices = null;
+			cells = Arrays.copyOf(cells, size);
+			before = Arrays.copyOf(before, size);
+			after = Arrays.copyOf(after, size);
+		}
+
+		@Override
+		public void undo() {
+			for (int i = size - 1; i >= 0; i--) {
+				layer.setTileGrid(cells[i] / layer.getHeight(), cells[i] % layer.getHeight(), before[i]);
+			}
+		}
+
+		@Override
+		public void redo() {
+			for (int i = 0; i < size; i++) {
+				layer.setTileGrid(cells[i] / layer.getHeight(), cells[i] % layer.getHeight(), after[i]);
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/** Entities added to and deleted from a world. */
+	static class EntityEdit implements Edit {
+
+		private final World world;
+		private final List<Entity> added = new ArrayList<>();
+		private final List<Entity> deleted = new ArrayList<>();
+
+		EntityEdit(World world) {
+			this.world = world;
+		}
+
+		void add(Entity e) {
+			if (world.add(e)) {
+				added.add(e);
+			}
+		}
+
+		void delete(Entity e) {
+			if (world.delete(e)) {
+				deleted.add(e);
+			}
+		}
+
+		@Override
+		public void undo() {
+			for (Entity e : added) {
+				world.delete(e);
+			}
+			for (Entity e : deleted) {
+				world.add(e);
+			}
+		}
+
+		@Override
+		public void redo() {
+			for (Entity e : deleted) {
+				world.delete(e);
+			}
+			for (Entity e : added) {
+				world.add(e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return added.size() + deleted.size();
+		}
+
+	}
+
+	/**
+	 * The editor switched to a different environment, like a resized copy of the old one. Both are kept, so this
+	 * counts as every tile in both.
+	 */
+	static class EnvironmentEdit implements Edit {
+
+		private final LevelEditor editor;
+		private final Editable before;
+		private final Editable after;
+
+		EnvironmentEdit(LevelEditor editor, Editable before, Editable after) {
+			this.editor = editor;
+			this.before = before;
+			this.after = after;
+		}
+
+		@Override
+		public void undo() {
+			editor.setEditableEnvironment(before);
+		}
+
+		@Override
+		public void redo() {
+			editor.setEditableEnvironment(after);
+		}
+
+		@Override
+		public int size() {
+			return getTiles(before) + getTiles(after);
+		}
+
+		private static int getTiles(Editable env) {
+			return env.getTileLayer().getWidth() * env.getTileLayer().getHeight();
+		}
+
+	}
+
+	private final Deque<Edit> undos = new ArrayDeque<>();
+	private final Deque<Edit> redos = new ArrayDeque<>();
+	private long changes;
+
+	/** The drag being painted, which becomes one edit when the mouse is released. */
+	private TileEdit stroke;
+
+	/** Record an edit that has already been done. Edits that changed nothing are left out. */
+	void push(Edit edit) {
+		if (edit instanceof TileEdit) {
+			((TileEdit) edit).finish();
+		}
+		if (edit.size() == 0) {
+			return;
+		}
+		for (Edit redo : redos) {
+			changes -= redo.size();
+		}
+		redos.clear();
+		undos.push(edit);
+		changes += edit.size();
+		while (changes > MAX_CHANGES && undos.size() > 1) {
+			changes -= undos.removeLast().size();
+		}
+	}
+
+	/** @return the edit recording the current drag over a tile layer, which is started if there isn't one */
+	TileEdit getStroke(TileLayer layer) {
+		if (stroke == null || stroke.layer != layer) {
+			endStroke();
+			stroke = new TileEdit(layer);
+		}
+		return stroke;
+	}
+
+	void endStroke() {
+		if (stroke != null) {
+			push(stroke);
+			stroke = null;
+		}
+	}
+
+	boolean canUndo() {
+		return !undos.isEmpty() || stroke != null && stroke.size() > 0;
+	}
+
+	boolean canRedo() {
+		return !redos.isEmpty();
+	}
+
+	void undo() {
+		endStroke();
+		if (undos.isEmpty()) {
+			return;
+		}
+		Edit edit = undos.pop();
+		edit.undo();
+		redos.push(edit);
+	}
+
+	void redo() {
+		endStroke();
+		if (redos.isEmpty()) {
+			return;
+		}
+		Edit edit = redos.pop();
+		edit.redo();
+		undos.push(edit);
+	}
+
+	/** Forget everything, for when a different world is opened. */
+	void clear() {
+		stroke = null;
+		undos.clear();
+		redos.clear();
+		changes = 0;
+	}
+
+}
@@ -2,7 +2,10 @@ package snorri.windows;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.GridLayout;
+import java.awt.RenderingHints;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
@@ -21,6 +24,12 @@ public abstract class GamePanel extends JPanel implements ActionListener, FocusL
 
 	private static final Color BACKGROUND_COLOR = new Color(255, 242, 197);
 	private static final Color BUTTON_COLOR = new Color(55, 135, 206);
+	
+	/**
+	 * Hint holding the size of the area a <code>Graphics</code> draws into, as a <code>Vector</code>, when it isn't the
+	 * size of the panel.
+	 */
+	public static final RenderingHints.Key VIEWPORT = new ViewportKey();
 
 	protected GamePanel() {
 		setBackground(BACKGROUND_COLOR);
@@ -86,6 +95,21 @@ public abstract class GamePanel extends JPanel implements ActionListener, FocusL
 	public Vector getCenter() {
 		return getDimensions().divide_(2);
 	}
+	
+	/** @return the size of the area drawn into by <code>gr</code>, which is the panel's unless it has a viewport hint */
+	public Vector getDimensions(Graphics gr) {
+		if (gr instanceof Graphics2D) {
+			Object viewport = ((Graphics2D) gr).getRenderingHint(VIEWPORT);
+			if (viewport != null) {
+				return ((Vector) viewport).copy();
+			}
+		}
+		return getDimensions();
+	}
+	
+	public Vector getCenter(Graphics gr) {
+		return getDimensions(gr).divide_(2);
+	}
 
 	/**
 	 * @return nanosecond-accurate time
@@ -104,4 +128,17 @@ public abstract class GamePanel extends JPanel implements ActionListener, FocusL
 //		Debug.log("focus lost in " + getClass().getSimpleName());
     }
 
+	private static class ViewportKey extends RenderingHints.Key {
+		
+		private ViewportKey() {
+			super(0);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object value) {
+			return value instanceof Vector;
+		}
+		
+	}
+	
 }
@@ -2,14 +2,18 @@ package snorri.windows;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.awt.image.VolatileImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
 
-import javax.swing.UIManager;
-
+import net.sourceforge.yamlbeans.YamlException;
 import snorri.audio.Audio;
 import snorri.audio.ClipWrapper;
 import snorri.dialog.DropMessage;
@@ -25,7 +29,10 @@ import snorri.main.Main;
 import snorri.overlay.DeathScreen;
 import snorri.triggers.TriggerType;
 import snorri.world.Playable;
+import snorri.world.QuickSave;
+import snorri.world.Vector;
 import snorri.world.World;
+import snorri.world.WorldGraph;
 
 public class GameWindow extends FocusedWindow<Player> {
 		
@@ -43,6 +50,10 @@ public class GameWindow extends FocusedWindow<Player> {
 	
 	private BlockingQueue<Message> messageQ;
 	private Timer messageTimer;
+	private HudLayer hud;
+	
+	/** Fixed-resolution target the world is rendered into when <code>Debug.renderedOffscreen()</code>. */
+	private VolatileImage offscreen;
 	
 	public GameWindow(Playable universe, Player focus) {
 		super(focus);
@@ -52,6 +63,7 @@ public class GameWindow extends FocusedWindow<Player> {
 		messageQ = new LinkedBlockingQueue<>();
 		messageTimer = new Timer(MESSAGE_DELAY);
 		messageTimer.hardReset();
+		hud = new HudLayer();
 		
 		lastTime = getTimestamp();
 		hasDied = false;
@@ -83,6 +95,7 @@ public class GameWindow extends FocusedWindow<Player> {
 			messageTimer.update(deltaTime);
 			if (messageTimer.activateIfPossible()) {
 				messageQ.poll();
+				hud.invalidate();
 			}
 		}
 		
@@ -114,40 +127,90 @@ public class GameWindow extends FocusedWindow<Player> {
 		
 		Graphics2D g = (Graphics2D) g1;
 
-		//Scales up the size of the size of the rendered levels
-		if (Debug.scaled()) {
-			g.scale(getScale(), getScale());
-			g.translate((int) (getWidth() / 2.0 / getScale() - getWidth() / 2.0), (int) (getHeight() / 2.0 / getScale() - getHeight() / 2.0));
-		}
-		
 		long time = getTimestamp();
 		double deltaTime = (time - lastRenderTime) / 1000000000d;
 		lastRenderTime = time;
-						
-		universe.getCurrentWorld().render(this, g, deltaTime, true);
-		
-		//Keeps the Overlay Elements unscaled
-		if (Debug.scaled()) {
-			g.scale(1.0 / getScale(), 1.0 / getScale());
-			g.translate((int) (getWidth() / 2.0 * getScale() - getWidth() / 2.0), (int) (getHeight() / 2.0 * getScale() - getHeight() / 2.0));
-		}
 		
-		player.getInventory().render(this, g);
-		player.renderHealthBar(g);
-				
-		if (!messageQ.isEmpty()) {
-			g.setFont(UIManager.getFont("Label.font"));
-			int xTrans = 0;
-			for (Message message : messageQ) {
-				xTrans += message.render(this, g, xTrans);
+		if (Debug.renderedOffscreen()) {
+			renderOffscreen(g, deltaTime);
+		} else {
+			//Scales up the size of the size of the rendered levels
+			if (Debug.scaled()) {
+				g.scale(getScale(), getScale());
+				g.translate((int) (getWidth() / 2.0 / getScale() - getWidth() / 2.0), (int) (getHeight() / 2.0 / getScale() - getHeight() / 2.0));
+			}
+			
+			universe.getCurrentWorld().render(this, g, deltaTime, true);
+			
+			//Keeps the Overlay Elements unscaled
+			if (Debug.scaled()) {
+				g.scale(1.0 / getScale(), 1.0 / getScale());
+				g.translate((int) (getWidth() / 2.0 * getScale() - getWidth() / 2.0), (int) (getHeight() / 2.0 * getScale() - getHeight() / 2.0));
 			}
 		}
 		
+		hud.render(this, g, player, messageQ);
+		
 		g.dispose();
 		g1.dispose();
 		
 	}
 	
+	/**
+	 * Render the world into a fixed-size offscreen image and scale it to fit the window.
+	 * 
+	 * The cost of filling the world is then the same for any window size. The image is letterboxed to keep its aspect
+	 * ratio.
+	 */
+	private void renderOffscreen(Graphics2D g, double deltaTime) {
+		int width = (int) getDefaultWidth(), height = (int) getDefaultHeight();
+		do {
+			if (offscreen == null || offscreen.validate(getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+				offscreen = createVolatileImage(width, height);
+				if (offscreen == null) {
+					return;
+				}
+			}
+			
+			Graphics2D buffer = offscreen.createGraphics();
+			buffer.setRenderingHints(g.getRenderingHints());
+			// Positions are relative to the target, rather than the window.
+			buffer.setRenderingHint(VIEWPORT, new Vector(width, height));
+			buffer.setColor(getBackground());
+			buffer.fillRect(0, 0, width, height);
+			try {
+				universe.getCurrentWorld().render(this, buffer, deltaTime, true);
+			} finally {
+				buffer.dispose();
+			}
+			// Don't advance animations again if the contents are lost and we have to redraw.
+			deltaTime = 0;
+			
+			double scale = getOffscreenScale();
+			int scaledWidth = (int) (width * scale), scaledHeight = (int) (height * scale);
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, Debug.integerScaled() ?
+					RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(offscreen, (getWidth() - scaledWidth) / 2, (getHeight() - scaledHeight) / 2, scaledWidth, scaledHeight, null);
+		} while (offscreen.contentsLost());
+	}
+	
+	/** The factor by which the offscreen target is scaled up to fill the window. */
+	public double getOffscreenScale() {
+		double scale = Math.min(getWidth() / getDefaultWidth(), getHeight() / getDefaultHeight());
+		if (Debug.integerScaled()) {
+			return Math.max(1, Math.floor(scale));
+		}
+		return scale;
+	}
+	
+	@Override
+	public Vector getMousePosRelative() {
+		if (Debug.renderedOffscreen()) {
+			return super.getMousePosRelative().divide_(getOffscreenScale());
+		}
+		return super.getMousePosRelative();
+	}
+	
 	public double getDefaultWidth() {
 		return Main.DEFAULT_WIDTH;
 	}
@@ -168,6 +231,7 @@ public class GameWindow extends FocusedWindow<Player> {
 	public void showMessage(Message m) {
 		Debug.logger.info(m.toString() + ".");
 		messageQ.add(m);
+		hud.invalidate();
 	}
 	
 	@Override
@@ -189,10 +253,56 @@ public class GameWindow extends FocusedWindow<Player> {
 			pause();
 		}
 		
+		if (Key.QUICK_LOAD.isPressed(e)) {
+			quickLoad();
+		}
+		
 		if (player == null || player.isDead() || isPaused()) {
 			return;
 		}
 		
+		if (Key.QUICK_SAVE.isPressed(e)) {
+			quickSave();
+		}
+		
+	}
+	
+	private void quickSave() {
+		try {
+			QuickSave.save(getWorld());
+		} catch (IOException e) {
+			Debug.logger.log(Level.WARNING, "Could not quick-save " + getWorld() + ".", e);
+		}
+	}
+	
+	/**
+	 * Reload the universe from its files, and replay the current world's quick-save on top. In a world graph, that
+	 * world becomes the current one.
+	 */
+	private void quickLoad() {
+		World current = getWorld();
+		if (current == null || !QuickSave.exists(current)) {
+			return;
+		}
+		File directory = universe instanceof WorldGraph ? ((WorldGraph) universe).getDirectory() : current.getDirectory();
+		String name = current.getDirectory().getName();
+		Main.loadInto(() -> {
+			try {
+				Playable reloaded = Playable.getLoaded(directory, new Player(Vector.ZERO));
+				World world = reloaded instanceof WorldGraph ? ((WorldGraph) reloaded).getWorld(name) : (World) reloaded;
+				if (world == null) {
+					throw new IOException(directory + " no longer has the world " + name + ".");
+				}
+				QuickSave.load(world);
+				if (reloaded instanceof WorldGraph) {
+					((WorldGraph) reloaded).enter(world);
+				}
+				Main.setWindow(new GameWindow(reloaded));
+			} catch (IOException | YamlException e) {
+				Debug.logger.log(Level.SEVERE, "Could not quick-load " + directory + ".", e);
+				Main.launchMenu();
+			}
+		});
 	}
 
 	@Override
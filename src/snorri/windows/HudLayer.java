@@ -0,0 +1,94 @@
+package snorri.windows;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+
+import javax.swing.UIManager;
+
+import snorri.dialog.Message;
+import snorri.entities.Player;
+import snorri.inventory.Inventory;
+import snorri.inventory.Item;
+
+/**
+ * Caches the health bar, item slots, and messages of the game HUD in an image.
+ *
+ * The image is only redrawn when something it shows changes, and only reallocated when the window is resized.
+ * Otherwise, drawing the HUD is one blit plus the cooldown arcs of any items that are recharging.
+ */
+class HudLayer {
+
+	private BufferedImage image;
+	private volatile boolean dirty = true;
+
+	private double hearts;
+	private Item weapon, papyrus;
+	private boolean weaponReady, papyrusReady;
+
+	/** Force the cached image to be redrawn, e.g. because the message queue changed. */
+	public void invalidate() {
+		dirty = true;
+	}
+
+	public void render(GameWindow window, Graphics2D g, Player player, Collection<Message> messages) {
+		Inventory inventory = player.getInventory();
+		if (isStale(window, player, inventory)) {
+			redraw(window, g, player, inventory, messages);
+		}
+		g.drawImage(image, 0, 0, null);
+		inventory.renderCooldowns(g);
+	}
+
+	private boolean isStale(GameWindow window, Player player, Inventory inventory) {
+		if (dirty || image == null || image.getWidth() != Math.max(1, window.getWidth())
+				|| image.getHeight() != Math.max(1, window.getHeight())) {
+			return true;
+		}
+		return hearts != player.getHearts() || weapon != inventory.getWeapon() || papyrus != inventory.getPapyrus()
+				|| weaponReady != canCast(weapon) || papyrusReady != canCast(papyrus);
+	}
+
+	private void redraw(GameWindow window, Graphics2D g, Player player, Inventory inventory, Collection<Message> messages) {
+		dirty = false;
+		hearts = player.getHearts();
+		weapon = inventory.getWeapon();
+		papyrus = inventory.getPapyrus();
+		weaponReady = canCast(weapon);
+		papyrusReady = canCast(papyrus);
+
+		int width = Math.max(1, window.getWidth());
+		int height = Math.max(1, window.getHeight());
+		boolean resized = image == null || image.getWidth() != width || image.getHeight() != height;
+		if (resized) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		}
+		Graphics2D hud = image.createGraphics();
+		if (!resized) {
+			// Reuse the image, which is as big as the window, rather than allocating another on every change.
+			hud.setComposite(AlphaComposite.Clear);
+			hud.fillRect(0, 0, width, height);
+			hud.setComposite(AlphaComposite.SrcOver);
+		}
+		hud.setRenderingHints(g.getRenderingHints());
+
+		inventory.renderSlots(hud);
+		player.renderHealthBar(hud);
+
+		if (!messages.isEmpty()) {
+			hud.setFont(UIManager.getFont("Label.font"));
+			int xTrans = 0;
+			for (Message message : messages) {
+				xTrans += message.render(window, hud, xTrans);
+			}
+		}
+
+		hud.dispose();
+	}
+
+	private static boolean canCast(Item item) {
+		return item != null && item.canCast();
+	}
+
+}
@@ -10,10 +10,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 import javax.swing.ButtonGroup;
 import javax.swing.ImageIcon;
@@ -38,7 +35,6 @@ import snorri.grammar.DefaultLexicon;
 import snorri.keyboard.Key;
 import snorri.main.Debug;
 import snorri.main.Main;
-import snorri.masking.Mask;
 import snorri.world.Editable;
 import snorri.world.TileLayer;
 import snorri.world.UnifiedTileType;
@@ -69,8 +65,7 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 	private boolean canGoUp;
 	private boolean canGoDown;
 
-	private boolean canUndo;
-	private boolean canRedo;
+	private final EditHistory history = new EditHistory();
 	
 	private boolean extraSpeed = false;
 	
@@ -88,8 +83,6 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 		createMenu();
 		repaint();
 		lastRenderTime = getTimestamp();
-		canUndo = false;
-		canRedo = false;
 	}
 
 	private void createMenu() {
@@ -269,6 +262,7 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 			Vector dims = new Vector(wh[0], wh[1]);
 			if (wh[0] > 0 && wh[1] > 0 && wh[0] <= TileLayer.MAX_SIZE && wh[1] <= TileLayer.MAX_SIZE) {
 				setEditableEnvironment(World.createDefaultWorld(dims));
+				history.clear();
 				centerCamera();
 			} else {
 				throw new IllegalArgumentException("Invalid dimensions for World: " + dims + ".");
@@ -281,6 +275,7 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 					break;
 				}
 				setEditableEnvironment(new World(worldFile));
+				history.clear();
 				centerCamera();
 			} catch (IOException e1) {
 				Debug.logger.warning("Failed to open World.");
@@ -306,14 +301,14 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 			resize(whNew[0], whNew[1]);
 			break;
 		case "Undo":
-			if (env == null || !canUndo) {
+			if (env == null || !history.canUndo()) {
 				Debug.logger.warning("Unable to undo.");
 				return;
 			}
 			undo();
 			break;
 		case "Redo":
-			if (env == null || !canRedo) {
+			if (env == null || !history.canRedo()) {
 				Debug.logger.warning("Unable to redo.");
 				return;
 			}
@@ -478,12 +473,17 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 					player.getPos().sub_(states.getLevelEditorMovementVector().getProjectionY().scale_(speed));
 				}
 				player.getPos().add_(states.getLevelEditorMovementVector().scale_(speed));
+				if (getWorld() != null) {
+					// The editor never updates the world, so this is where its entities are streamed around the view.
+					getWorld().stream(getCenterObject());
+				}
 				
 				if (isClicking) {
 					Vector location = getMousePosAbsolute().copy();
-					int x = location.getX();
-					int y = location.getY();
-					getSelectedTileLayer().setTile(x, y, new Tile(selectedTile));
+					int x = location.getX() / Tile.WIDTH;
+					int y = location.getY() / Tile.WIDTH;
+					// Every tile painted until the mouse is released is undone together.
+					history.getStroke(getSelectedTileLayer()).setTileGrid(x, y, new Tile(selectedTile));
 				}
 			}
 		}
@@ -526,6 +526,11 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 	@Override
 	public void mouseReleased(MouseEvent e) {
 		isClicking = false;
+		if (env != null) {
+			synchronized (env) {
+				history.endStroke();
+			}
+		}
 	}
 
 	@Override
@@ -568,17 +573,15 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 		Vector location = getMousePosAbsolute().copy();
 		int x = location.getX() / Tile.WIDTH;
 		int y = location.getY() / Tile.WIDTH;
-		int w = getSelectedTileLayer().getWidth();
-		int h = getSelectedTileLayer().getHeight();
 
-		Tile t = getSelectedTileLayer().getTileGrid(x, y);
+		synchronized (env) {
+			Tile t = getSelectedTileLayer().getTileGrid(x, y);
 
-		ArrayList<Vector> willFill = computeConnectedSubGraph(new Vector(x, y), new boolean[w][h]);
-
-		if (selectedTile != null && getSelectedTileLayer().getTileGrid(x, y) != null && t != null && !t.equals(selectedTile)) {
-			autosaveUndo();
-			for (Vector v : willFill) {
-				getSelectedTileLayer().setTileGrid(v, new Tile(selectedTile));
+			if (selectedTile != null && t != null && !t.equals(selectedTile)) {
+				List<Vector> willFill = getSelectedTileLayer().floodFill(new Vector(x, y), tile -> tile.equals(t));
+				EditHistory.TileEdit edit = new EditHistory.TileEdit(getSelectedTileLayer());
+				edit.setTilesGrid(willFill, new Tile(selectedTile));
+				history.push(edit);
 			}
 		}
 
@@ -590,34 +593,6 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 		}
 	}
 
-	@Deprecated
-	private ArrayList<Vector> computeConnectedSubGraph(Vector start, boolean[][] visited) {
-																							
-		final Tile START_TILE = getSelectedTileLayer().getTileGrid(start);
-
-		ArrayList<Vector> graph = new ArrayList<Vector>();
-		Queue<Vector> searchQ = new LinkedList<Vector>();
-		searchQ.add(start);
-		Vector pos;
-
-		while (!searchQ.isEmpty()) {
-
-			pos = searchQ.poll();
-			if (getSelectedTileLayer().getTileGrid(pos) == null || !getSelectedTileLayer().getTileGrid(pos).equals(START_TILE) || visited[pos.getX()][pos.getY()]) {
-				continue;
-			}
-
-			visited[pos.getX()][pos.getY()] = true;
-			if (getSelectedTileLayer().getTileGrid(pos).equals(START_TILE))
-				graph.add(pos);
-			
-			for (Vector v : Mask.getNeighbors(pos)) {
-				searchQ.add(v);
-			}
-		}
-		return graph;
-	}
-
 	private void openEntityInventory() {
 
 		if (!(env instanceof World)) {
@@ -657,60 +632,71 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 			return;
 		}
 		World world = (World) env;
+		Entity spawned = createEntity(getMousePosAbsolute());
+		if (spawned == null) {
+			return;
+		}
 
-		autosaveUndo();
-
-		if (selectedEntityClass.equals(Player.class)) {
-			if (world.computeFocus() != null) {
-				world.delete(world.computeFocus()); // don't need to check null
+		synchronized (env) {
+			EditHistory.EntityEdit edit = new EditHistory.EntityEdit(world);
+			if (selectedEntityClass.equals(Player.class)) {
+				if (world.computeFocus() != null) {
+					edit.delete(world.computeFocus()); // don't need to check null
+				}
 			}
+			else if (selectedEntityClass.equals(Center.class)) {
+				edit.delete(world.getEntityTree().getFirst(Center.class));
+			}
+			edit.add(spawned);
+			history.push(edit);
 		}
-		else if (selectedEntityClass.equals(Center.class)) {
-			world.delete(world.getEntityTree().getFirst(Center.class));
-		}
-
-		Vector spawnPos = getMousePosAbsolute();
+	}
 
+	/**
+	 * Create an entity of the selected type, asking for its settings first if it has any. This doesn't hold the
+	 * world's lock, so the editor keeps running while a dialog is open.
+	 * @return the entity, or null if it was cancelled or couldn't be created
+	 */
+	private Entity createEntity(Vector spawnPos) {
 		try {
-
 			if (selectedEntityClass.equals(Drop.class)) {
 				DialogMap inputs = new DialogMap();
 				// TODO: Rather than just showing the Egyptian string, this should be structured and include English gloss.
 				inputs.putSelection("Prize", DefaultLexicon.getOrthographicForms());
 				inputs.put("Spell", "");
 				if (dialog("Drop Reward", inputs) == null) {
-					return;
+					return null;
 				}
-				world.add(new Drop(spawnPos, inputs.getText("Prize"), inputs.getText("Spell")));
+				return new Drop(spawnPos, inputs.getText("Prize"), inputs.getText("Spell"));
 			} else if (selectedEntityClass.equals(Listener.class)) {
 				DialogMap inputs = new DialogMap();
 				inputs.put("Radius", "40");
 				inputs.put("Tag", "Trigger to activate");
 				if (dialog("Configure Listener", inputs) == null) {
-					return;
+					return null;
 				}
-				world.add(new Listener(spawnPos, inputs.getInteger("Radius"), inputs.getText("Tag")));
+				return new Listener(spawnPos, inputs.getInteger("Radius"), inputs.getText("Tag"));
 			} else if (selectedEntityClass.equals(Ballista.class)) {
 				DialogMap inputs = new DialogMap();
 				inputs.put("X", "1");
 				inputs.put("Y", "0");
 				if (dialog("Ballista Direction", inputs) == null) {
-					return;
+					return null;
 				}
 				Vector dir = new Vector(inputs.getDouble("X"), inputs.getDouble("Y"));
-				world.add(new Ballista(spawnPos, dir));
+				return new Ballista(spawnPos, dir);
 			} else if (selectedEntityClass.equals(Dummy.class)) {
 				DialogMap inputs = new DialogMap();
 				inputs.put("Path", "/textures/animations/path");
 				if (dialog("Dummy Animation", inputs) == null) {
-					return;
+					return null;
 				}
 				String animation = inputs.getText("Path");
-				world.add(new Dummy(spawnPos, animation));
+				return new Dummy(spawnPos, animation);
 			}
 
 			else {
-				world.add(selectedEntityClass.getConstructor(Vector.class).newInstance(spawnPos));
+				return selectedEntityClass.getConstructor(Vector.class).newInstance(spawnPos);
 			}
 
 		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
@@ -719,6 +705,7 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 		} catch (NoSuchMethodException e) {
 			Debug.logger.warning("Cannot spawn entity type " + selectedEntityClass.getSimpleName() + ".");
 		}
+		return null;
 	}
 
 	private void deleteEntity() {
@@ -727,63 +714,41 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 			return;
 		}
 		World world = (World) env;
-		Entity deletableEntity = world.getEntityTree().getFirstCollision(new Entity(getMousePosAbsolute()), true);
-		autosaveUndo();
-		world.delete(deletableEntity);
-	}
-
-	public void resize(int newWidth, int newHeight) {
-		autosaveUndo();
-		setEditableEnvironment(env.getResized(newWidth, newHeight));
-	}
-
-	public void autosaveUndo() {
-		try {
-			env.save(Main.getFile("/worlds/.undo1"), false);
-			canUndo = true;
-			canRedo = false;
-		} catch (IOException e) {
-			Debug.logger.warning("Failed to undo.");
+		synchronized (env) {
+			Entity deletableEntity = world.getEntityTree().getFirstCollision(new Entity(getMousePosAbsolute()), true);
+			EditHistory.EntityEdit edit = new EditHistory.EntityEdit(world);
+			edit.delete(deletableEntity);
+			history.push(edit);
 		}
 	}
 
-	public void autosaveRedo() {
-		try {
-			env.save(Main.getFile("/worlds/.redo1"));
-			canUndo = false;
-			canRedo = true;
-		} catch (IOException e) {
-			Debug.logger.warning("Failed to redo.");
-			canRedo = false;
+	public void resize(int newWidth, int newHeight) {
+		Editable old = env;
+		synchronized (old) {
+			// Pushed before switching, since the frame loop only locks the new environment once it is switched to.
+			Editable resized = old.getResized(newWidth, newHeight);
+			history.push(new EditHistory.EnvironmentEdit(this, old, resized));
+			setEditableEnvironment(resized);
 		}
 	}
 
 	public void undo() {
-		if (canUndo) {
-			try {
-				autosaveRedo();
-				env.load(Main.getFile("/saves/.undo1"));
-				canUndo = false;
-				canRedo = true;
-				Debug.logger.info("Undone!");
-			} catch (IOException e) {
-				Debug.logger.warning("Failed to undo.");
+		if (history.canUndo()) {
+			synchronized (env) {
+				history.undo();
 			}
+			Debug.logger.info("Undone!");
 		} else {
 			Debug.logger.info("Cannot undo right now.");
 		}
 	}
 
 	public void redo() {
-		if (canRedo) {
-			try {
-				env.load(Main.getFile("/saves/.redo1"));
-				Debug.logger.info("Redone!");
-				canUndo = true;
-				canRedo = false;
-			} catch (IOException e) {
-				Debug.logger.warning("Failed to redo.");
+		if (history.canRedo()) {
+			synchronized (env) {
+				history.redo();
 			}
+			Debug.logger.info("Redone!");
 		} else {
 			Debug.logger.info("Cannot redo right now.");
 		}
@@ -823,7 +788,7 @@ public class LevelEditor extends FocusedWindow<Entity> implements ActionListener
 		}
 	}
 	
-	private void setEditableEnvironment(Editable env) {
+	void setEditableEnvironment(Editable env) {
 		this.env = env;
 		setSelectedTileLayer(env.getTileLayer());
 	}
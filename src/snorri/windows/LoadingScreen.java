@@ -7,6 +7,7 @@ import java.awt.event.ActionEvent;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 
+import snorri.main.Assets;
 import snorri.main.Main;
 
 public class LoadingScreen extends GamePanel {
@@ -20,7 +21,7 @@ public class LoadingScreen extends GamePanel {
 
 	public LoadingScreen() {
 		label = new JLabel("Loading...");
-		Image image = Main.getImage("/textures/conceptArt/thoth.png").getScaledInstance(-1, Main.getWindow().getHeight(), Image.SCALE_SMOOTH);
+		Image image = Assets.getImage("/textures/conceptArt/thoth.png").getScaledInstance(-1, Main.getWindow().getHeight(), Image.SCALE_SMOOTH);
 		add(new JLabel(new ImageIcon(image)));
 		setVisible(true);
 		setFocusable(true);
@@ -9,6 +9,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 import snorri.audio.Music;
+import snorri.main.Assets;
 import snorri.main.Main;
 import snorri.util.Util;
 import snorri.world.World;
@@ -28,7 +29,7 @@ public class MainMenu extends GamePanel {
 		outerFrame.setLayout(new GridLayout(0, 1));
 		add(outerFrame);
 		
-		outerFrame.add(new JLabel(new ImageIcon(Util.resize(Main.getImage("/textures/titleScreen/title.png"), 0, 310))));
+		outerFrame.add(new JLabel(new ImageIcon(Util.resize(Assets.getImage("/textures/titleScreen/title.png"), 0, 310))));
 		
 		JPanel menu = new MenuPanel();
 		menu.add(createButton(PLAY_STORY));
@@ -0,0 +1,173 @@
+package snorri.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+
+import net.sourceforge.yamlbeans.YamlException;
+import snorri.animations.Animation;
+import snorri.entities.Entity;
+import snorri.entities.Player;
+import snorri.grammar.DefaultLexicon;
+import snorri.inventory.RandomDrop;
+import snorri.main.Debug;
+import snorri.world.Playable.PlayableType;
+
+/**
+ * Lists the images a world or world graph needs, so that they can be decoded on several threads while it loads rather
+ * than one at a time when they are first drawn.
+ *
+ * Run with the folders to list. The manifest is written as <code>assets.manifest</code>, with one path per line, and
+ * holds the textures of the tile types used, the animations of the entities placed along with those kept in static
+ * fields of their classes, the player's animations, and backgrounds in the game directory. Anything missing from it
+ * is still decoded when first drawn, so a stale manifest only makes loading slower.
+ */
+public class AssetManifest {
+
+	public static final String FILENAME = "assets.manifest";
+
+	private static final String CONFIG = "config.yml";
+
+	public static void main(String[] args) {
+		DefaultLexicon.load();
+		RandomDrop.load();
+
+		int written = 0;
+		for (String arg : args) {
+			File folder = new File(arg);
+			try {
+				write(folder);
+				written++;
+			} catch (IOException | YamlException e) {
+				Debug.logger.log(Level.SEVERE, "Could not list the assets of " + folder + ".", e);
+			}
+		}
+		Debug.logger.info("Wrote manifests for " + written + " of " + args.length + " worlds.");
+	}
+
+	/** @return the paths listed in a folder's manifest, or none if it doesn't have one */
+	public static List<String> read(File folder) {
+		List<String> paths = new ArrayList<>();
+		File file = new File(folder, FILENAME);
+		if (!file.exists()) {
+			return paths;
+		}
+		try {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					paths.add(line);
+				}
+			}
+		} catch (IOException e) {
+			Debug.logger.log(Level.WARNING, "Could not read " + file + ".", e);
+		}
+		return paths;
+	}
+
+	/** Write the manifest of a world or world graph's folder, replacing any manifest already there. */
+	public static void write(File folder) throws IOException, YamlException {
+		Set<String> paths = new TreeSet<>();
+		Set<Class<?>> classes = new HashSet<>();
+		classes.add(Player.class);
+
+		Map<String, Object> yaml = Playable.getConfig(folder);
+		if (PlayableType.valueOf((String) yaml.get("type")) == PlayableType.WORLD_GRAPH) {
+			for (File world : folder.listFiles(File::isDirectory)) {
+				if (new File(world, CONFIG).exists()) {
+					addWorld(paths, classes, world, Playable.getConfig(world));
+				}
+			}
+		} else {
+			addWorld(paths, classes, folder, yaml);
+		}
+		for (Class<?> c : classes) {
+			addStaticAnimations(paths, c);
+		}
+
+		File file = new File(folder, FILENAME);
+		File tmp = new File(folder, FILENAME + ".tmp");
+		try (PrintWriter out = new PrintWriter(tmp, StandardCharsets.UTF_8.name())) {
+			out.println("# Images preloaded while " + folder.getName() + " loads, written by AssetManifest.");
+			for (String path : paths) {
+				out.println(path);
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Debug.logger.info("Listed " + paths.size() + " assets of " + folder + " in " + file + ".");
+	}
+
+	/** Add the assets of a world, and the classes of its entities, whose static animations are added later. */
+	@SuppressWarnings("unchecked")
+	private static void addWorld(Set<String> paths, Set<Class<?>> classes, File folder, Map<String, Object> yaml)
+			throws IOException, YamlException {
+		World world = new World(folder);
+		Set<Integer> types = new HashSet<>();
+		for (char tile : world.getTileLayer().getTiles()) {
+			types.add(tile >> Byte.SIZE);
+		}
+		for (int type : types) {
+			if (type < UnifiedTileType.values().length) {
+				for (String path : UnifiedTileType.values()[type].getTexturePaths()) {
+					if (path != null) {
+						paths.add(path);
+					}
+				}
+			}
+		}
+
+		// Only the entities which are loaded, which for a region are those near the spawn.
+		world.getEntityTree().mapOverEntities(e -> {
+			classes.add(e.getClass());
+			add(paths, e.getAnimation());
+		});
+
+		// Backgrounds in the world's own folder aren't shared with other worlds, so they are decoded as before.
+		List<Map<String, Object>> layers = (List<Map<String, Object>>) yaml.get("layers");
+		if (layers != null) {
+			for (Map<String, Object> params : layers) {
+				String path = (String) params.get("path");
+				if (Layer.LayerType.BACKGROUND.name().equals(params.get("type")) && path != null
+						&& path.startsWith("/")) {
+					paths.add(path);
+				}
+			}
+		}
+	}
+
+	/** Add the animations in static fields of an entity class and the classes it extends. */
+	private static void addStaticAnimations(Set<String> paths, Class<?> c) {
+		for (; c != null && Entity.class.isAssignableFrom(c); c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) || field.getType() != Animation.class) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					add(paths, (Animation) field.get(null));
+				} catch (ReflectiveOperationException | RuntimeException e) {
+					Debug.logger.log(Level.WARNING, "Could not read " + c.getSimpleName() + "." + field.getName() + ".", e);
+				}
+			}
+		}
+	}
+
+	private static void add(Set<String> paths, Animation animation) {
+		if (animation != null && animation.getPath() != null) {
+			paths.add(animation.getPath());
+		}
+	}
+
+}
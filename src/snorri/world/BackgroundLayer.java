@@ -3,8 +3,11 @@ package snorri.world;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.Map;
+import java.util.logging.Level;
 
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.windows.FocusedWindow;
@@ -16,7 +19,7 @@ public class BackgroundLayer implements Layer {
 	protected World world;
 	protected BufferedImage bitmap;
 	
-	public static final BufferedImage DEFAULT_BACKGROUND = Main.getImage("/textures/backgrounds/splash.png");
+	public static final String DEFAULT_BACKGROUND = "/textures/backgrounds/splash.png";
 	public static final int CUSHION = 0;
 	
 	public BackgroundLayer(World world, BufferedImage bitmap) {
@@ -28,9 +31,12 @@ public class BackgroundLayer implements Layer {
 		String path = (String) params.get("path");
 		Debug.logger.info("Loading " + path + "...");
 		BufferedImage bitmap;
-		if (path.startsWith("/")) {
-			// If the path is absolute, look in the game directory.
-			bitmap = Main.getImage(path);
+		BufferedImage packed = getPacked(world, path);
+		if (packed != null) {
+			bitmap = packed;
+		} else if (path.startsWith("/")) {
+			// If the path is absolute, look in the game directory, where it may be shared with other worlds.
+			bitmap = Assets.getImage(path);
 		} else {
 			// If the path is not absolute, look in the world directory.
 			File file = new File(world.getDirectory(), path);
@@ -39,10 +45,22 @@ public class BackgroundLayer implements Layer {
 		return new BackgroundLayer(world, bitmap);
 	}
 	
+	private static BufferedImage getPacked(World world, String path) {
+		if (world.getBundle() == null) {
+			return null;
+		}
+		try {
+			return world.getBundle().getImage(path);
+		} catch (IOException e) {
+			Debug.logger.log(Level.WARNING, "Could not read " + path + " from the bundle, so loading it instead.", e);
+			return null;
+		}
+	}
+	
 	@Override
 	public void render(FocusedWindow<?> window, Graphics2D gr, double deltaTime, boolean renderOutside) {
 		Vector center = window.getCenterObject().getPos();
-		Vector windowDimensions = window.getDimensions();
+		Vector windowDimensions = window.getDimensions(gr);
 		Vector origin = windowDimensions.divide(2).sub(center);
 		
 		BufferedImage clipped = bitmap.getSubimage(0, 0, bitmap.getWidth(), world.getHeight());
@@ -0,0 +1,86 @@
+package snorri.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import snorri.entities.Entity;
+import snorri.entities.Unit;
+
+/**
+ * The state of a world as it was loaded, which quick-saves record changes against.
+ *
+ * Entities are identified by their order in the entity tree just after loading, which is the same every time the
+ * same files are loaded. A checksum of that order and of the tiles tells when the files have changed, which would make
+ * old quick-saves refer to the wrong entities.
+ */
+class Baseline {
+
+	private final List<Entity> entities = new ArrayList<>();
+	private final Map<Entity, Integer> ids = new IdentityHashMap<>();
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] healths;
+	private final int checksum;
+
+	/** Cells changed since loading, indexed like <code>TileLayer</code>'s tiles. */
+	private final BitSet changedTiles = new BitSet();
+
+	Baseline(World world) {
+		world.getEntityTree().mapOverEntities(entities::add);
+		xs = new double[entities.size()];
+		ys = new double[entities.size()];
+		healths = new double[entities.size()];
+		int hash = Arrays.hashCode(world.getTileLayer().getTiles());
+		for (int i = 0; i < entities.size(); i++) {
+			Entity e = entities.get(i);
+			ids.put(e, i);
+			xs[i] = e.getPos().x;
+			ys[i] = e.getPos().y;
+			healths[i] = e instanceof Unit ? ((Unit) e).getHealth() : 0;
+			hash = 31 * (31 * hash + e.getClass().getName().hashCode()) + e.getPos().hashCode();
+		}
+		checksum = hash;
+	}
+
+	int getChecksum() {
+		return checksum;
+	}
+
+	int size() {
+		return entities.size();
+	}
+
+	/** @return the id of an entity that was there when the world was loaded, or -1 for one spawned since */
+	int getId(Entity e) {
+		Integer id = ids.get(e);
+		return id == null ? -1 : id;
+	}
+
+	Entity get(int id) {
+		return entities.get(id);
+	}
+
+	boolean hasChanged(int id, Entity e) {
+		if (e.getPos().x != xs[id] || e.getPos().y != ys[id]) {
+			return true;
+		}
+		if (e instanceof Unit) {
+			Unit unit = (Unit) e;
+			return unit.getHealth() != healths[id] || !unit.getModifiers().isEmpty();
+		}
+		return false;
+	}
+
+	void markTile(TileLayer layer, int x, int y) {
+		changedTiles.set(x * layer.getHeight() + y);
+	}
+
+	BitSet getChangedTiles() {
+		return changedTiles;
+	}
+
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.util.Map;
 
 import snorri.entities.Entity;
+import snorri.entities.EntityLayerFormat;
 import snorri.entities.EntityTree;
 import snorri.main.Debug;
 import snorri.windows.FocusedWindow;
@@ -26,7 +27,17 @@ public class EntityLayer implements SavableLayer {
 	
 	public static EntityLayer fromYAML(World world, Map<String, Object> params) throws IOException {
 		EntityLayer entityLayer = new EntityLayer(world);
-		File file = new File(world.getDirectory(), (String) params.get("path"));
+		String path = (String) params.get("path");
+		WorldBundle bundle = world.getBundle();
+		byte[] packed = bundle == null ? null : bundle.getBytes(path);
+		if (packed != null) {
+			Debug.logger.info("Loading " + bundle.getSource(path) + "...");
+			for (Entity e : EntityLayerFormat.read(packed, bundle.getSource(path))) {
+				entityLayer.add(e);
+			}
+			return entityLayer;
+		}
+		File file = new File(world.getDirectory(), path);
 		Debug.logger.info("Loading " + file + "...");
 		entityLayer.entityTree.loadEntities(file);
 		return entityLayer;
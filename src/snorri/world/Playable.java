@@ -35,10 +35,20 @@ public interface Playable extends Loadable, Savable {
 		}
 		
 		public Playable newInstance(File file, Player player) {
+			return newInstance(file, player, null, null);
+		}
+		
+		/**
+		 * @param yaml
+		 * 	the parsed config, or null to parse it
+		 * @param bundle
+		 * 	the bundle to read files from, or null to read the loose files
+		 */
+		public Playable newInstance(File file, Player player, Map<String, Object> yaml, WorldBundle bundle) {
 			Constructor<? extends Playable> constructor;
 			try {
-				constructor = playableClass.getConstructor(File.class, Player.class);
-				return constructor.newInstance(file, player);
+				constructor = playableClass.getConstructor(File.class, Player.class, Map.class, WorldBundle.class);
+				return constructor.newInstance(file, player, yaml, bundle);
 			} catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException
 					| InvocationTargetException e) {
 				Debug.logger.log(java.util.logging.Level.SEVERE, "Playable of type " + this + " could not be created.",
@@ -132,9 +142,11 @@ public interface Playable extends Loadable, Savable {
 	 * @throws IOException
 	 */
 	static Playable getLoaded(File file, Player p) throws FileNotFoundException, IOException, YamlException {
-		Map<String, Object> yaml = getConfig(file);
+		// The config is only parsed once here, and not at all if there is an up-to-date bundle.
+		WorldBundle bundle = WorldBundle.open(file);
+		Map<String, Object> yaml = bundle == null ? getConfig(file) : bundle.getConfig();
 		PlayableType type = PlayableType.valueOf((String) yaml.get("type"));
-		return type.newInstance(file, p);		
+		return type.newInstance(file, p, yaml, bundle);
 	}
 
 	public Center findCenter();
@@ -0,0 +1,353 @@
+package snorri.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import snorri.entities.Entity;
+import snorri.entities.EntityLayerFormat;
+import snorri.entities.Player;
+import snorri.entities.Unit;
+import snorri.inventory.Inventory;
+import snorri.inventory.Item;
+import snorri.inventory.ManaManager;
+import snorri.inventory.Spell;
+import snorri.inventory.Weapon;
+import snorri.main.Debug;
+import snorri.triggers.TriggerMap;
+import snorri.triggers.TriggerType;
+
+/**
+ * Saves what has changed in a world since it was loaded, and replays it on top of the same world loaded again.
+ *
+ * A quick-save holds the tiles changed through <code>World.wrapGridUpdate</code>, the entities deleted since loading,
+ * the positions of entities that have moved along with the health, modifiers and inventories of units, the entities
+ * spawned since loading with the health, modifiers and inventories of those that are units, and the triggers that have
+ * fired. Inventories hold the items' spells and nicknames and the unit's mana, so that the player gets back what it had
+ * rather than what it would be loaded with. Since it only
+ * depends on how much has changed, it takes a few milliseconds to write, however large the world.
+ *
+ * A file starts with a header: the magic number, the format version, the checksum of the world it was saved against
+ * from <code>Baseline</code>, the length of the body, and a CRC32 checksum of the body.
+ */
+public class QuickSave {
+
+	static final int MAGIC = 0x51534156; // "QSAV"
+	static final int VERSION = 2;
+	public static final String FILENAME = "quick.save";
+
+	private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+	private QuickSave() {
+	}
+
+	/** @return the file a world's quick-save is written to, next to its layers */
+	public static File getFile(World world) {
+		return new File(world.getDirectory(), FILENAME);
+	}
+
+	public static boolean exists(World world) {
+		return world.getDirectory() != null && getFile(world).exists();
+	}
+
+	public static void save(World world) throws IOException {
+		Baseline baseline = world.getBaseline();
+		if (baseline == null) {
+			throw new IOException("Can't quick-save " + world + ", which wasn't loaded from layers.");
+		}
+
+		long start = System.nanoTime();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(body);
+		synchronized (world) {
+			writeTiles(out, world.getTileLayer(), baseline.getChangedTiles());
+			writeEntities(out, world, baseline);
+			writeTriggers(out, world.getTriggerMap());
+		}
+		out.flush();
+
+		CRC32 crc = new CRC32();
+		crc.update(body.toByteArray());
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(baseline.getChecksum()).putInt(body.size())
+				.putInt((int) crc.getValue());
+
+		File file = getFile(world);
+		File tmp = new File(file.getPath() + ".tmp");
+		try (OutputStream stream = new FileOutputStream(tmp)) {
+			stream.write(header.array());
+			body.writeTo(stream);
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Debug.logger.info("Quick-saved " + world + " in " + (System.nanoTime() - start) / 1000000 + " ms ("
+				+ (HEADER_SIZE + body.size()) + " bytes).");
+	}
+
+	private static void writeTiles(DataOutputStream out, TileLayer layer, BitSet changed) throws IOException {
+		char[] tiles = layer.getTiles();
+		out.writeInt(changed.cardinality());
+		for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+			out.writeInt(i);
+			out.writeChar(tiles[i]);
+		}
+	}
+
+	private static void writeEntities(DataOutputStream out, World world, Baseline baseline) throws IOException {
+		BitSet present = new BitSet(baseline.size());
+		List<Integer> changed = new ArrayList<>();
+		List<Entity> spawned = new ArrayList<>();
+		world.getEntityTree().mapOverEntities(e -> {
+			int id = baseline.getId(e);
+			if (id < 0) {
+				spawned.add(e);
+				return;
+			}
+			present.set(id);
+			if (baseline.hasChanged(id, e)) {
+				changed.add(id);
+			}
+		});
+
+		out.writeInt(baseline.size() - present.cardinality());
+		for (int id = present.nextClearBit(0); id < baseline.size(); id = present.nextClearBit(id + 1)) {
+			out.writeInt(id);
+		}
+
+		out.writeInt(changed.size());
+		for (int id : changed) {
+			Entity e = baseline.get(id);
+			out.writeInt(id);
+			out.writeDouble(e.getPos().x);
+			out.writeDouble(e.getPos().y);
+			if (e instanceof Unit) {
+				writeUnit(out, (Unit) e);
+			}
+		}
+
+		byte[] block = EntityLayerFormat.encode(spawned);
+		out.writeInt(block.length);
+		out.write(block);
+		for (Entity e : spawned) {
+			if (e instanceof Unit) {
+				writeUnit(out, (Unit) e);
+			}
+		}
+	}
+
+	/** Units keep their health, modifiers and inventories, which change without the unit moving. */
+	private static void writeUnit(DataOutputStream out, Unit unit) throws IOException {
+		out.writeDouble(unit.getHealth());
+		unit.writeModifiers(out);
+		writeInventory(out, unit.getInventory());
+	}
+
+	private static void writeInventory(DataOutputStream out, Inventory inventory) throws IOException {
+		writeItem(out, inventory.getWeapon());
+		writeItem(out, inventory.getPapyrus());
+		ManaManager mana = inventory.getMana();
+		out.writeBoolean(mana != null);
+		if (mana != null) {
+			out.writeDouble(mana.getMaxMana());
+			out.writeDouble(mana.getManaRegen());
+			out.writeDouble(mana.getMana());
+		}
+	}
+
+	private static void writeItem(DataOutputStream out, Item item) throws IOException {
+		out.writeInt(item == null ? -1 : item.getType().getId());
+		if (item != null) {
+			EntityLayerFormat.writeString(out, item.getNickname());
+			EntityLayerFormat.writeString(out, item.getSpell() == null ? null : item.getSpell().getOrthography());
+		}
+	}
+
+	private static void writeTriggers(DataOutputStream out, TriggerMap triggers) throws IOException {
+		int count = 0;
+		for (List<String> names : triggers.getFired().values()) {
+			count += names.size();
+		}
+		out.writeInt(count);
+		for (Map.Entry<TriggerType, List<String>> fired : triggers.getFired().entrySet()) {
+			for (String name : fired.getValue()) {
+				out.writeUTF(fired.getKey().name());
+				out.writeUTF(name);
+			}
+		}
+	}
+
+	/**
+	 * Replay a world's quick-save on top of it. The world should have just been loaded, with its player spawned.
+	 * @return false if there was no quick-save
+	 */
+	public static boolean load(World world) throws IOException {
+		Baseline baseline = world.getBaseline();
+		File file = getFile(world);
+		if (baseline == null || !file.exists()) {
+			return false;
+		}
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException(file + " is not a quick-save.");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException(file + " has quick-save version " + version + ", rather than " + VERSION + ".");
+		}
+		if (buffer.getInt() != baseline.getChecksum()) {
+			throw new IOException(file + " was saved against a different version of " + world + ".");
+		}
+		int length = buffer.getInt();
+		int checksum = buffer.getInt();
+		if (buffer.remaining() < length) {
+			throw new IOException(file + " is truncated.");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes, HEADER_SIZE, length);
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(file + " failed its checksum.");
+		}
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, HEADER_SIZE, length));
+		synchronized (world) {
+			readTiles(in, world, file);
+			readEntities(in, world, baseline, file);
+			readTriggers(in, world.getTriggerMap());
+		}
+		Debug.logger.info("Loaded quick-save of " + world + ".");
+		return true;
+	}
+
+	private static void readTiles(DataInputStream in, World world, File file) throws IOException {
+		TileLayer layer = world.getTileLayer();
+		int types = UnifiedTileType.values().length;
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			int index = in.readInt();
+			char tile = in.readChar();
+			if (index < 0 || index >= layer.getTiles().length || tile >> Byte.SIZE >= types) {
+				throw new IOException(file + " changes a tile that doesn't exist.");
+			}
+			int x = index / layer.getHeight();
+			int y = index % layer.getHeight();
+			layer.setTileGrid(x, y, Tile.unpack(tile));
+			world.getBaseline().markTile(layer, x, y);
+		}
+	}
+
+	private static void readEntities(DataInputStream in, World world, Baseline baseline, File file)
+			throws IOException {
+		EntityLayer layer = world.getEntityLayer();
+		int deleted = in.readInt();
+		for (int i = 0; i < deleted; i++) {
+			layer.remove(getEntity(baseline, in.readInt(), file));
+		}
+
+		int changed = in.readInt();
+		for (int i = 0; i < changed; i++) {
+			Entity e = getEntity(baseline, in.readInt(), file);
+			world.getEntityTree().move(e, new Vector(in.readDouble(), in.readDouble()));
+			if (e instanceof Unit) {
+				readUnit(in, (Unit) e, file);
+			}
+		}
+
+		// The player saved is spawned below, in place of the one spawned when the world was loaded.
+		List<Player> players = new ArrayList<>();
+		world.getEntityTree().mapOverEntities(e -> {
+			if (e instanceof Player && baseline.getId(e) < 0) {
+				players.add((Player) e);
+			}
+		});
+		for (Player player : players) {
+			layer.remove(player);
+		}
+
+		byte[] block = new byte[in.readInt()];
+		in.readFully(block);
+		for (Entity e : EntityLayerFormat.decode(block, file.getPath())) {
+			layer.add(e);
+			if (e instanceof Unit) {
+				readUnit(in, (Unit) e, file);
+			}
+		}
+	}
+
+	private static Entity getEntity(Baseline baseline, int id, File file) throws IOException {
+		if (id < 0 || id >= baseline.size()) {
+			throw new IOException(file + " refers to entity " + id + ", which doesn't exist.");
+		}
+		return baseline.get(id);
+	}
+
+	private static void readUnit(DataInputStream in, Unit unit, File file) throws IOException {
+		unit.damage(unit.getHealth() - in.readDouble());
+		try {
+			unit.readModifiers(in);
+		} catch (IOException e) {
+			throw new IOException("Could not read the modifiers of " + unit + " from " + file + ".", e);
+		}
+		readInventory(in, unit.getInventory(), file);
+	}
+
+	private static void readInventory(DataInputStream in, Inventory inventory, File file) throws IOException {
+		Item weapon = readItem(in, file);
+		if (weapon != null && !(weapon instanceof Weapon)) {
+			throw new IOException(file + " has a " + weapon.getType() + " in a weapon slot.");
+		}
+		inventory.setWeapon((Weapon) weapon);
+
+		// Every inventory has the same papyrus, so only its spell and nickname are replayed.
+		Item papyrus = readItem(in, file);
+		if (papyrus != null && inventory.getPapyrus() != null) {
+			inventory.getPapyrus().setNickname(papyrus.getNickname());
+			inventory.getPapyrus().setSpell(papyrus.getSpell());
+		}
+
+		ManaManager mana = null;
+		if (in.readBoolean()) {
+			mana = new ManaManager(in.readDouble(), in.readDouble());
+			mana.setMana(in.readDouble());
+		}
+		inventory.setMana(mana);
+	}
+
+	private static Item readItem(DataInputStream in, File file) throws IOException {
+		int id = in.readInt();
+		if (id == -1) {
+			return null;
+		}
+		if (id < 0 || id >= Item.ItemType.values().length) {
+			throw new IOException(file + " has an unknown item " + id + ".");
+		}
+		Item item = Item.newItem(id);
+		item.setNickname(EntityLayerFormat.readString(in));
+		String spell = EntityLayerFormat.readString(in);
+		// Spells are compiled when they are first cast.
+		item.setSpell(spell == null ? null : new Spell(spell));
+		return item;
+	}
+
+	private static void readTriggers(DataInputStream in, TriggerMap triggers) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			TriggerType type = TriggerType.valueOf(in.readUTF());
+			triggers.markFired(type, in.readUTF());
+		}
+	}
+
+}
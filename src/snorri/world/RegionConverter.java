@@ -0,0 +1,81 @@
+package snorri.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import net.sourceforge.yamlbeans.YamlException;
+import snorri.entities.EntityTree;
+import snorri.grammar.DefaultLexicon;
+import snorri.inventory.RandomDrop;
+import snorri.main.Debug;
+
+/**
+ * Converts worlds stored as a tile layer and an entity layer to a region, which streams in entities around the
+ * player rather than loading them all at once. This is only worth it for very large worlds.
+ *
+ * Run with the world directories to convert. The region is written as <code>region.layer</code> and added to
+ * <code>config.yml</code> once it has been read back with the same tiles and number of entities. The old layers are
+ * left in place: removing the <code>region</code> line from the config switches back to them.
+ */
+public class RegionConverter {
+
+	public static void main(String[] args) {
+		DefaultLexicon.load();
+		RandomDrop.load();
+
+		int converted = 0;
+		for (String arg : args) {
+			File world = new File(arg);
+			try {
+				if (convert(world)) {
+					converted++;
+				}
+			} catch (IOException e) {
+				Debug.logger.log(Level.SEVERE, "Could not convert " + world + ".", e);
+			}
+		}
+		Debug.logger.info("Converted " + converted + " of " + args.length + " worlds to regions.");
+	}
+
+	/** @return true if the world was converted, or false if it already was a region */
+	public static boolean convert(File directory) throws IOException {
+		World world = new World(directory);
+		if (world.isRegion()) {
+			return false;
+		}
+		int entities = countEntities(world.getEntityTree());
+		world.convertToRegion();
+		world.save(directory, false);
+
+		// Read the region back without going through the config, which doesn't mention it yet.
+		File file = new File(directory, World.REGION_FILENAME);
+		RegionStreamer region = RegionStreamer.open(file);
+		region.loadAll();
+		region.close();
+		int read = countEntities(region.getEntityLayer().getEntityTree());
+		if (read != entities || !Arrays.equals(region.getTileLayer().getTiles(), world.getTileLayer().getTiles())) {
+			file.delete();
+			throw new IOException("Region for " + directory + " has " + read + " entities rather than " + entities
+					+ ", or different tiles.");
+		}
+
+		try {
+			if (Playable.getConfig(directory).get(World.REGION_KEY) == null) {
+				World.addRegionToConfig(directory, World.REGION_FILENAME);
+			}
+		} catch (YamlException e) {
+			throw new IOException("Could not read the config of " + directory + ".", e);
+		}
+		Debug.logger.info("Converted " + directory + " with " + entities + " entities.");
+		return true;
+	}
+
+	private static int countEntities(EntityTree tree) {
+		int[] count = new int[1];
+		tree.mapOverEntities(e -> count[0]++);
+		return count[0];
+	}
+
+}
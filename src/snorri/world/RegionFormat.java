@@ -0,0 +1,289 @@
+package snorri.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes region files, which hold a whole level's tiles and entities in fixed-size square chunks.
+ *
+ * A file starts with a header: the magic number, the format version, the width and height of the level in tiles, the
+ * width of a chunk in tiles, and a CRC32 checksum of the index. The index follows, with an entry for each chunk in
+ * x-major order: the offset of its data, the length of its entity block, checksums of its tiles and of its entity
+ * block, and flags. A chunk's data is its packed tiles, in x-major order within the chunk, then its entity block as
+ * written by <code>EntityLayerFormat.encode</code>. Chunks on the right and bottom edges are cut short by the edge of
+ * the level.
+ *
+ * Since every chunk has its own offset, a chunk that changes can be appended to the end of the file and its entry
+ * pointed at the new copy, without moving the others.
+ */
+class RegionFormat {
+
+	static final int MAGIC = 0x52474F4E; // "RGON"
+	static final int VERSION = 1;
+	static final int DEFAULT_CHUNK_SIZE = 16;
+
+	/** The chunk holds entities that must stay loaded, like a spawn point or an entity that triggers refer to. */
+	static final int PINNED = 1;
+
+	static final int HEADER_SIZE = 6 * Integer.BYTES;
+	static final int ENTRY_SIZE = Long.BYTES + 4 * Integer.BYTES;
+	private static final int BYTES_PER_TILE = 2;
+
+	private RegionFormat() {
+	}
+
+	/** Supplies the entity block and flags of each chunk while a region is written. */
+	interface ChunkSource {
+
+		byte[] getEntities(int chunk) throws IOException;
+
+		int getFlags(int chunk);
+
+	}
+
+	/** The size of a level in chunks, and where each chunk is in a file. */
+	static class Index {
+
+		final int width;
+		final int height;
+		final int chunkSize;
+		final int chunksX;
+		final int chunksY;
+
+		final long[] offsets;
+		final int[] entityLengths;
+		final int[] tileChecksums;
+		final int[] entityChecksums;
+		final int[] flags;
+
+		Index(int width, int height, int chunkSize) {
+			this.width = width;
+			this.height = height;
+			this.chunkSize = chunkSize;
+			chunksX = (width + chunkSize - 1) / chunkSize;
+			chunksY = (height + chunkSize - 1) / chunkSize;
+			int chunks = chunksX * chunksY;
+			offsets = new long[chunks];
+			entityLengths = new int[chunks];
+			tileChecksums = new int[chunks];
+			entityChecksums = new int[chunks];
+			flags = new int[chunks];
+		}
+
+		int getChunks() {
+			return offsets.length;
+		}
+
+		int getChunk(int chunkX, int chunkY) {
+			return chunkX * chunksY + chunkY;
+		}
+
+		int getChunkX(int chunk) {
+			return chunk / chunksY;
+		}
+
+		int getChunkY(int chunk) {
+			return chunk % chunksY;
+		}
+
+		/** @return the number of tiles in a chunk, which is smaller for chunks on the edges */
+		int getTiles(int chunk) {
+			return getChunkWidth(chunk) * getChunkHeight(chunk);
+		}
+
+		int getChunkWidth(int chunk) {
+			return Math.min(chunkSize, width - getChunkX(chunk) * chunkSize);
+		}
+
+		int getChunkHeight(int chunk) {
+			return Math.min(chunkSize, height - getChunkY(chunk) * chunkSize);
+		}
+
+		/** @return where in the file a chunk's entity block starts */
+		long getEntityOffset(int chunk) {
+			return offsets[chunk] + getTiles(chunk) * BYTES_PER_TILE;
+		}
+
+		/** @return the length of the header and index, where chunk data starts */
+		long getDataStart() {
+			return HEADER_SIZE + (long) getChunks() * ENTRY_SIZE;
+		}
+
+	}
+
+	static Index readIndex(File file, FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(file, channel, header, 0);
+		if (header.getInt() != MAGIC) {
+			throw new IOException(file + " is not a region.");
+		}
+		int version = header.getInt();
+		if (version > VERSION) {
+			throw new IOException(file + " has region version " + version + ", newer than " + VERSION + ".");
+		}
+		int width = header.getInt();
+		int height = header.getInt();
+		int chunkSize = header.getInt();
+		int checksum = header.getInt();
+		if (width <= 0 || height <= 0 || chunkSize <= 0) {
+			throw new IOException(file + " has a " + width + "x" + height + " region in chunks of " + chunkSize + ".");
+		}
+
+		Index index = new Index(width, height, chunkSize);
+		ByteBuffer entries = ByteBuffer.allocate(index.getChunks() * ENTRY_SIZE);
+		readFully(file, channel, entries, HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(entries.duplicate());
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(file + " failed its index checksum.");
+		}
+		for (int i = 0; i < index.getChunks(); i++) {
+			index.offsets[i] = entries.getLong();
+			index.entityLengths[i] = entries.getInt();
+			index.tileChecksums[i] = entries.getInt();
+			index.entityChecksums[i] = entries.getInt();
+			index.flags[i] = entries.getInt();
+		}
+		return index;
+	}
+
+	/** Read a chunk's tiles into the layer, which must be the size of the region. */
+	static void readTiles(File file, FileChannel channel, Index index, int chunk, TileLayer layer) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(index.getTiles(chunk) * BYTES_PER_TILE);
+		readFully(file, channel, buffer, index.offsets[chunk]);
+		check(file, buffer, index.tileChecksums[chunk], chunk);
+
+		char[] tiles = layer.getTiles();
+		int types = UnifiedTileType.values().length;
+		int x0 = index.getChunkX(chunk) * index.chunkSize;
+		int y0 = index.getChunkY(chunk) * index.chunkSize;
+		int chunkHeight = index.getChunkHeight(chunk);
+		for (int x = x0; x < x0 + index.getChunkWidth(chunk); x++) {
+			int column = x * index.height + y0;
+			for (int y = 0; y < chunkHeight; y++) {
+				char tile = buffer.getChar();
+				if (tile >> Byte.SIZE >= types) {
+					throw new IOException(file + " has a tile of unknown type " + (tile >> Byte.SIZE) + ".");
+				}
+				tiles[column + y] = tile;
+			}
+		}
+	}
+
+	static byte[] readEntities(File file, FileChannel channel, Index index, int chunk) throws IOException {
+		return readEntities(file, channel, chunk, index.getEntityOffset(chunk), index.entityLengths[chunk],
+				index.entityChecksums[chunk]);
+	}
+
+	/**
+	 * Read a chunk's entities from where its entry said they were, so this can be done on another thread while the
+	 * entry changes.
+	 */
+	static byte[] readEntities(File file, FileChannel channel, int chunk, long position, int length, int checksum)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		readFully(file, channel, buffer, position);
+		check(file, buffer, checksum, chunk);
+		return buffer.array();
+	}
+
+	/** @return the packed tiles of one chunk, in the order they are stored */
+	static byte[] encodeTiles(Index index, int chunk, TileLayer layer) {
+		ByteBuffer buffer = ByteBuffer.allocate(index.getTiles(chunk) * BYTES_PER_TILE);
+		char[] tiles = layer.getTiles();
+		int x0 = index.getChunkX(chunk) * index.chunkSize;
+		int y0 = index.getChunkY(chunk) * index.chunkSize;
+		for (int x = x0; x < x0 + index.getChunkWidth(chunk); x++) {
+			buffer.asCharBuffer().put(tiles, x * index.height + y0, index.getChunkHeight(chunk));
+			buffer.position(buffer.position() + index.getChunkHeight(chunk) * BYTES_PER_TILE);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Append a chunk to the end of a file and point its entry in the index at it.
+	 * @return the new end of the file
+	 */
+	static long append(FileChannel channel, long end, Index index, int chunk, byte[] tiles, byte[] entities,
+			int flags) throws IOException {
+		ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.wrap(tiles), ByteBuffer.wrap(entities) };
+		long position = end;
+		for (ByteBuffer buffer : buffers) {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+		index.offsets[chunk] = end;
+		index.entityLengths[chunk] = entities.length;
+		index.tileChecksums[chunk] = checksum(tiles);
+		index.entityChecksums[chunk] = checksum(entities);
+		index.flags[chunk] = flags;
+		return position;
+	}
+
+	/** Write a whole region, one chunk at a time, with the header and index written last. */
+	static void write(File file, TileLayer layer, int chunkSize, ChunkSource source) throws IOException {
+		Index index = new Index(layer.getWidth(), layer.getHeight(), chunkSize);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long end = index.getDataStart();
+			for (int chunk = 0; chunk < index.getChunks(); chunk++) {
+				end = append(channel, end, index, chunk, encodeTiles(index, chunk, layer), source.getEntities(chunk),
+						source.getFlags(chunk));
+			}
+			writeIndex(channel, index);
+		}
+	}
+
+	static void writeIndex(FileChannel channel, Index index) throws IOException {
+		ByteBuffer entries = ByteBuffer.allocate(index.getChunks() * ENTRY_SIZE);
+		for (int i = 0; i < index.getChunks(); i++) {
+			entries.putLong(index.offsets[i]).putInt(index.entityLengths[i]).putInt(index.tileChecksums[i])
+					.putInt(index.entityChecksums[i]).putInt(index.flags[i]);
+		}
+		entries.flip();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(index.width).putInt(index.height).putInt(index.chunkSize)
+				.putInt(checksum(entries.array()));
+		header.flip();
+
+		long position = 0;
+		for (ByteBuffer buffer : new ByteBuffer[] { header, entries }) {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		}
+	}
+
+	static int checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return (int) crc.getValue();
+	}
+
+	private static void check(File file, ByteBuffer buffer, int checksum, int chunk) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException("Chunk " + chunk + " of " + file + " failed its checksum.");
+		}
+	}
+
+	/** Positional reads don't move the channel's position, so chunks can be read from several threads at once. */
+	private static void readFully(File file, FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException(file + " is truncated.");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+}
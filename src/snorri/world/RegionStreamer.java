@@ -0,0 +1,470 @@
+package snorri.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+import snorri.collisions.RectCollider;
+import snorri.entities.Center;
+import snorri.entities.Entity;
+import snorri.entities.EntityLayerFormat;
+import snorri.entities.EntityTree;
+import snorri.entities.Player;
+import snorri.entities.Spawn;
+import snorri.main.Debug;
+
+/**
+ * Keeps the entities of a world stored in a region file loaded only around the focus.
+ *
+ * Chunks within <code>World.UPDATE_RADIUS</code> of the focus, plus a margin, are read when the region is opened. As
+ * the focus moves, every chunk within a wider radius is read in the background, and reads are only added to the world
+ * once they have finished, a chunk at a time, so streaming never waits for a chunk to be read. Chunks farther away
+ * than a slightly larger radius are unloaded, so a focus moving back and forth over a chunk border doesn't load and
+ * unload the same chunks. A chunk is only written back when it is unloaded if its entities have changed, and then to
+ * a working copy of the region, so the region is only changed by <code>save</code>. Entities that wander that far
+ * into a chunk that isn't loaded are written into it then too.
+ *
+ * Tiles are not streamed: every chunk's tiles are read when a region is opened. Packed, the tiles of a level at
+ * <code>TileLayer.MAX_SIZE</code> take 2 MB, far less than the entities of the same level.
+ *
+ * Chunks holding entities that must always be found, like spawn points or entities that triggers refer to by tag, are
+ * pinned: they are loaded when the region is opened and never unloaded.
+ */
+class RegionStreamer {
+
+	/** How many chunks beyond the load radius to read in the background. */
+	private static final int PREFETCH_CHUNKS = 2;
+
+	private static final ExecutorService READER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Region reader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final File file;
+	private final RegionFormat.Index index;
+	private final TileLayer tileLayer;
+	private final EntityLayer entityLayer;
+
+	private final int chunkPixels;
+	private final double loadRadius;
+	private final double prefetchRadius;
+	private final double unloadRadius;
+
+	/**
+	 * The working copy of the region, which unloaded chunks are appended to and all chunks are read from. It is only
+	 * created once it is needed, and the region itself is never held open.
+	 */
+	private FileChannel channel;
+	private long end;
+
+	private final BitSet loaded = new BitSet();
+	/** The checksum of each loaded chunk's entities when it was loaded, to tell whether it needs writing back. */
+	private final Map<Integer, Integer> loadedChecksums = new HashMap<>();
+	private final Map<Integer, CompletableFuture<byte[]>> pending = new HashMap<>();
+
+	private int lastChunk = -1;
+
+	private RegionStreamer(File file, RegionFormat.Index index, TileLayer tileLayer, EntityLayer entityLayer) {
+		this.file = file;
+		this.index = index;
+		this.tileLayer = tileLayer;
+		this.entityLayer = entityLayer;
+		chunkPixels = index.chunkSize * Tile.WIDTH;
+		// The focus can move up to a chunk's diagonal before chunks are streamed again.
+		loadRadius = World.UPDATE_RADIUS + 2 * chunkPixels;
+		prefetchRadius = loadRadius + PREFETCH_CHUNKS * chunkPixels;
+		unloadRadius = prefetchRadius + chunkPixels;
+	}
+
+	/** Open a region file, reading all of its tiles and its pinned chunks. */
+	static RegionStreamer open(File file) throws IOException {
+		Debug.logger.info("Loading region " + file + "...");
+		FileChannel channel = openWorking(file);
+		try {
+			RegionFormat.Index index = RegionFormat.readIndex(file, channel);
+			TileLayer tileLayer = new TileLayer(index.width, index.height, UnifiedTileType.EMPTY);
+			for (int chunk = 0; chunk < index.getChunks(); chunk++) {
+				RegionFormat.readTiles(file, channel, index, chunk, tileLayer);
+			}
+
+			EntityLayer entityLayer = new EntityLayer(EntityTree.coverLevel(tileLayer),
+					tileLayer.getDimensions().globalPos_());
+			RegionStreamer region = new RegionStreamer(file, index, tileLayer, entityLayer);
+			region.channel = channel;
+			region.end = channel.size();
+			for (int chunk = 0; chunk < index.getChunks(); chunk++) {
+				if ((index.flags[chunk] & RegionFormat.PINNED) != 0) {
+					region.load(chunk, region.readEntities(chunk));
+				}
+			}
+			return region;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Wrap layers that are already fully loaded, so they can be saved as a region and streamed from then on.
+	 * @param file
+	 * 	where the region will be saved
+	 */
+	static RegionStreamer wrap(File file, TileLayer tileLayer, EntityLayer entityLayer) {
+		RegionFormat.Index index = new RegionFormat.Index(tileLayer.getWidth(), tileLayer.getHeight(),
+				RegionFormat.DEFAULT_CHUNK_SIZE);
+		RegionStreamer region = new RegionStreamer(file, index, tileLayer, entityLayer);
+		region.loaded.set(0, index.getChunks());
+		return region;
+	}
+
+	TileLayer getTileLayer() {
+		return tileLayer;
+	}
+
+	EntityLayer getEntityLayer() {
+		return entityLayer;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/** Stop reading from the working copy, which deletes it. */
+	synchronized void close() throws IOException {
+		pending.values().forEach(read -> read.cancel(false));
+		pending.clear();
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Read the chunks around the focus, waiting for them. This is for when a world is opened, so its first frames
+	 * aren't missing entities; after that, <code>stream</code> keeps them loaded.
+	 */
+	synchronized void loadAround(Entity focus) {
+		if (focus == null || focus.getPos() == null) {
+			return;
+		}
+		Vector pos = focus.getPos();
+		try {
+			for (int i = 0; i < index.getChunks(); i++) {
+				if (!loaded.get(i) && getDistance(i, pos) <= loadRadius) {
+					CompletableFuture<byte[]> read = pending.remove(i);
+					load(i, read == null ? readEntities(i) : read.join());
+				}
+			}
+		} catch (IOException | CompletionException e) {
+			Debug.logger.log(Level.SEVERE, "Could not load chunks of " + file + ".", e);
+		}
+		prefetch(pos);
+		lastChunk = getChunk(pos);
+	}
+
+	/**
+	 * Add a chunk whose read has finished, and when the focus has moved into a different chunk, start reading the
+	 * chunks around it and unload the ones left behind. This never waits for a chunk to be loaded.
+	 */
+	synchronized void stream(Entity focus) {
+		if (focus == null || focus.getPos() == null) {
+			return;
+		}
+		Vector pos = focus.getPos();
+		installFinished(pos);
+		int chunk = getChunk(pos);
+		if (chunk == lastChunk) {
+			return;
+		}
+		prefetch(pos);
+		unloadAround(pos);
+		lastChunk = chunk;
+	}
+
+	/**
+	 * Load the nearest chunk that has been read in the background. Only one is loaded each step, since adding a
+	 * chunk's entities to the tree takes a while.
+	 */
+	private void installFinished(Vector pos) {
+		int nearest = -1;
+		for (Map.Entry<Integer, CompletableFuture<byte[]>> read : pending.entrySet()) {
+			if (read.getValue().isDone()
+					&& (nearest < 0 || getDistance(read.getKey(), pos) < getDistance(nearest, pos))) {
+				nearest = read.getKey();
+			}
+		}
+		if (nearest < 0) {
+			return;
+		}
+		try {
+			load(nearest, pending.remove(nearest).join());
+		} catch (IOException | CompletionException e) {
+			// It is read again the next time the focus changes chunks.
+			Debug.logger.log(Level.SEVERE, "Could not load chunk " + nearest + " of " + file + ".", e);
+		}
+	}
+
+	/** Start reading every chunk the focus could reach before the next time it changes chunks. */
+	private void prefetch(Vector pos) {
+		for (int i = 0; i < index.getChunks(); i++) {
+			if (!loaded.get(i) && !pending.containsKey(i) && getDistance(i, pos) <= prefetchRadius) {
+				long offset = index.getEntityOffset(i);
+				int length = index.entityLengths[i];
+				int checksum = index.entityChecksums[i];
+				int target = i;
+				pending.put(i, CompletableFuture.supplyAsync(() -> {
+					try {
+						return RegionFormat.readEntities(file, channel, target, offset, length, checksum);
+					} catch (IOException e) {
+						throw new CompletionException(e);
+					}
+				}, READER));
+			}
+		}
+	}
+
+	private void unloadAround(Vector pos) {
+		Iterator<Map.Entry<Integer, CompletableFuture<byte[]>>> reads = pending.entrySet().iterator();
+		while (reads.hasNext()) {
+			Map.Entry<Integer, CompletableFuture<byte[]>> read = reads.next();
+			if (getDistance(read.getKey(), pos) > unloadRadius) {
+				read.getValue().cancel(false);
+				reads.remove();
+			}
+		}
+
+		boolean unloaded = false;
+		for (int i = loaded.nextSetBit(0); i >= 0; i = loaded.nextSetBit(i + 1)) {
+			if ((index.flags[i] & RegionFormat.PINNED) == 0 && getDistance(i, pos) > unloadRadius) {
+				try {
+					unloaded |= unload(i);
+				} catch (IOException e) {
+					Debug.logger.log(Level.SEVERE, "Could not unload chunk " + i + " of " + file + ".", e);
+				}
+			}
+		}
+		unloaded |= evictStrays(pos);
+		if (unloaded) {
+			entityLayer.getEntityTree().prune();
+		}
+	}
+
+	/**
+	 * Write entities that have moved into chunks that aren't loaded, and are too far away to be soon, into those
+	 * chunks. This reads those chunks' stored entities right away, but it is rare, since something has to carry an
+	 * entity far from the focus. Ones that have to stay loaded are left, and are saved with their chunk by
+	 * <code>save</code>.
+	 * @return whether any were removed
+	 */
+	private boolean evictStrays(Vector pos) {
+		Map<Integer, List<Entity>> strays = new HashMap<>();
+		entityLayer.getEntityTree().mapOverEntities(e -> {
+			int chunk = getChunk(e.getPos());
+			if (!loaded.get(chunk) && getDistance(chunk, pos) > unloadRadius) {
+				strays.computeIfAbsent(chunk, i -> new ArrayList<>()).add(e);
+			}
+		});
+
+		boolean evicted = false;
+		for (Map.Entry<Integer, List<Entity>> chunk : strays.entrySet()) {
+			List<Entity> entities = chunk.getValue();
+			if (entities.stream().anyMatch(RegionStreamer::isPinned)) {
+				continue;
+			}
+			try {
+				write(chunk.getKey(), EntityLayerFormat.concat(readEntities(chunk.getKey()),
+						EntityLayerFormat.encode(entities)));
+			} catch (IOException e) {
+				Debug.logger.log(Level.SEVERE, "Could not write entities into chunk " + chunk.getKey() + " of " + file
+						+ ".", e);
+				continue;
+			}
+			for (Entity e : entities) {
+				entityLayer.remove(e);
+			}
+			evicted = true;
+		}
+		return evicted;
+	}
+
+	/** Load every chunk, for things like transforming the world that need all of it. */
+	synchronized void loadAll() throws IOException {
+		for (int i = 0; i < index.getChunks(); i++) {
+			if (!loaded.get(i)) {
+				pending.remove(i);
+				load(i, readEntities(i));
+			}
+		}
+		lastChunk = -1;
+	}
+
+	private void load(int chunk, byte[] entities) throws IOException {
+		for (Entity e : EntityLayerFormat.decode(entities, file + " chunk " + chunk)) {
+			entityLayer.add(e);
+		}
+		loaded.set(chunk);
+		loadedChecksums.put(chunk, RegionFormat.checksum(entities));
+	}
+
+	/**
+	 * Remove a chunk's entities, writing them to the working copy if they have changed.
+	 * @return false if the chunk had to stay loaded
+	 */
+	private boolean unload(int chunk) throws IOException {
+		List<Entity> entities = getEntities(chunk);
+		for (Entity e : entities) {
+			if (isPinned(e)) {
+				// Something that has to stay loaded moved here, so this chunk does too.
+				index.flags[chunk] |= RegionFormat.PINNED;
+				return false;
+			}
+		}
+
+		byte[] block = EntityLayerFormat.encode(entities);
+		Integer checksum = loadedChecksums.remove(chunk);
+		if (checksum == null || checksum != RegionFormat.checksum(block)) {
+			write(chunk, block);
+		}
+		for (Entity e : entities) {
+			entityLayer.remove(e);
+		}
+		loaded.clear(chunk);
+		return true;
+	}
+
+	/** Append a chunk's entities to the working copy, replacing the ones stored for it. */
+	private void write(int chunk, byte[] entities) throws IOException {
+		if (channel == null) {
+			channel = openWorking(null);
+			end = index.getDataStart();
+		}
+		end = RegionFormat.append(channel, end, index, chunk, RegionFormat.encodeTiles(index, chunk, tileLayer),
+				entities, 0);
+	}
+
+	/**
+	 * Create a working copy of a region, so chunks can be written back without changing it, and so it isn't held open
+	 * while it is being streamed. This is read through a channel rather than mapped, since a mapped file can't be
+	 * deleted on Windows until the mapping is garbage collected.
+	 * @param file
+	 * 	the region to copy, or null to start with an empty file
+	 */
+	private static FileChannel openWorking(File file) throws IOException {
+		File working = File.createTempFile("region", ".tmp");
+		working.deleteOnExit();
+		if (file != null) {
+			Files.copy(file.toPath(), working.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return FileChannel.open(working.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Save the whole region, reading chunks that aren't loaded from the working copy. The file is written next to its
+	 * destination and then moved into place, so the region being streamed from can be saved over.
+	 */
+	synchronized void save(File file) throws IOException {
+		// Entities that moved into an unloaded chunk are still in the tree, so load the rest of that chunk to save them
+		// together.
+		BitSet strays = new BitSet();
+		entityLayer.getEntityTree().mapOverEntities(e -> {
+			int chunk = getChunk(e.getPos());
+			if (!loaded.get(chunk)) {
+				strays.set(chunk);
+			}
+		});
+		for (int i = strays.nextSetBit(0); i >= 0; i = strays.nextSetBit(i + 1)) {
+			pending.remove(i);
+			load(i, readEntities(i));
+		}
+
+		Map<Integer, List<Entity>> entities = getLoadedEntities();
+		File tmp = new File(file.getPath() + ".tmp");
+		RegionFormat.write(tmp, tileLayer, index.chunkSize, new RegionFormat.ChunkSource() {
+
+			@Override
+			public byte[] getEntities(int chunk) throws IOException {
+				if (loaded.get(chunk)) {
+					List<Entity> chunkEntities = entities.get(chunk);
+					return EntityLayerFormat.encode(chunkEntities == null ? new ArrayList<>() : chunkEntities);
+				}
+				return readEntities(chunk);
+			}
+
+			@Override
+			public int getFlags(int chunk) {
+				if (loaded.get(chunk)) {
+					List<Entity> chunkEntities = entities.get(chunk);
+					return chunkEntities != null && chunkEntities.stream().anyMatch(RegionStreamer::isPinned)
+							? RegionFormat.PINNED : 0;
+				}
+				return index.flags[chunk];
+			}
+
+		});
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/** @return the entities in loaded chunks, by chunk */
+	private Map<Integer, List<Entity>> getLoadedEntities() {
+		Map<Integer, List<Entity>> entities = new HashMap<>();
+		entityLayer.getEntityTree().mapOverEntities(e -> {
+			entities.computeIfAbsent(getChunk(e.getPos()), chunk -> new ArrayList<>()).add(e);
+		});
+		return entities;
+	}
+
+	/** @return the entities whose positions are in a chunk */
+	private List<Entity> getEntities(int chunk) {
+		int x0 = index.getChunkX(chunk) * chunkPixels;
+		int y0 = index.getChunkY(chunk) * chunkPixels;
+		Vector dim = new Vector(index.getChunkWidth(chunk), index.getChunkHeight(chunk)).globalPos_();
+		Entity bounds = new Entity(new Vector(x0 + dim.x / 2, y0 + dim.y / 2), new RectCollider(dim));
+		List<Entity> entities = new ArrayList<>();
+		entityLayer.getEntityTree().mapOverCollisions(bounds, true, e -> {
+			if (getChunk(e.getPos()) == chunk) {
+				entities.add(e);
+			}
+		});
+		return entities;
+	}
+
+	private static boolean isPinned(Entity e) {
+		return e.getTag() != null || e instanceof Spawn || e instanceof Center || e instanceof Player;
+	}
+
+	private byte[] readEntities(int chunk) throws IOException {
+		return RegionFormat.readEntities(file, channel, index, chunk);
+	}
+
+	/** @return the chunk a position is in, clamped to the region */
+	private int getChunk(Vector pos) {
+		int x = Math.max(0, Math.min(index.chunksX - 1, (int) Math.floor(pos.x / chunkPixels)));
+		int y = Math.max(0, Math.min(index.chunksY - 1, (int) Math.floor(pos.y / chunkPixels)));
+		return index.getChunk(x, y);
+	}
+
+	/** @return the distance from a position to the nearest point of a chunk */
+	private double getDistance(int chunk, Vector pos) {
+		double x0 = index.getChunkX(chunk) * chunkPixels;
+		double y0 = index.getChunkY(chunk) * chunkPixels;
+		double dx = Math.max(0, Math.max(x0 - pos.x, pos.x - (x0 + chunkPixels)));
+		double dy = Math.max(0, Math.max(y0 - pos.y, pos.y - (y0 + chunkPixels)));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+}
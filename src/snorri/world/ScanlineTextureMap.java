@@ -0,0 +1,178 @@
+package snorri.world;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A run-length encoding of which base texture covers each row of a <code>TileLayer</code>.
+ *
+ * Each tile row is stored as a list of runs, where a run is a start column and a texture id. A run extends until the
+ * start of the next run (or the end of the row). This replaces the old per-texture <code>Area</code> unions, which got
+ * slower as the shapes grew, and can be rasterized straight into an <code>INT_ARGB</code> bitmap.
+ */
+class ScanlineTextureMap {
+
+	private static final int BORDER_COLOR = 0xFF000000;
+	private static final int NO_TEXTURE = 0;
+
+	private final int width;
+	private final int height;
+
+	/** Packed runs for each tile row, as alternating start columns and texture ids. */
+	private final int[][] rows;
+
+	/** Texture palette. Id <code>NO_TEXTURE</code> is reserved for tiles without a base texture. */
+	private final List<BufferedImage> textures = new ArrayList<>();
+	private final List<int[]> texturePixels = new ArrayList<>();
+	private final Map<BufferedImage, Integer> textureIds = new IdentityHashMap<>();
+
+	/** Build the map in one linear pass over the layer. */
+	ScanlineTextureMap(TileLayer layer) {
+		width = layer.getWidth();
+		height = layer.getHeight();
+		rows = new int[height][];
+		textures.add(null);
+		texturePixels.add(null);
+		int[] ids = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				ids[x] = getTextureId(layer.getTileGrid(x, y));
+			}
+			rows[y] = encodeRow(ids);
+		}
+	}
+
+	/** Update the runs of a single row after the tile at (x, y) changed. */
+	void update(int x, int y, Tile tile) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return;
+		}
+		int[] ids = decodeRow(y, new int[width]);
+		ids[x] = getTextureId(tile);
+		rows[y] = encodeRow(ids);
+	}
+
+	/** Rasterize the whole map into bitmap, processing horizontal bands of tiles in parallel. */
+	void rasterize(BufferedImage bitmap) {
+		int[] pixels = getPixels(bitmap);
+		int stride = bitmap.getWidth();
+		IntStream.range(0, height).parallel().forEach(y -> rasterizeRow(pixels, stride, y, 0, width));
+	}
+
+	/**
+	 * Rasterize the tile at (x, y) after an update, along with the neighbors whose borders depend on it.
+	 */
+	void rasterize(BufferedImage bitmap, int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return;
+		}
+		int[] pixels = getPixels(bitmap);
+		int stride = bitmap.getWidth();
+		rasterizeRow(pixels, stride, y, x, Math.min(x + 2, width));
+		if (y + 1 < height) {
+			rasterizeRow(pixels, stride, y + 1, x, x + 1);
+		}
+	}
+
+	/**
+	 * Fill the tiles in columns [minX, maxX) of row y.
+	 *
+	 * Borders between different textures are drawn on the first pixel row/column of the lower/right tile, which is
+	 * where stroking the old <code>Area</code> outlines left them.
+	 */
+	private void rasterizeRow(int[] pixels, int stride, int y, int minX, int maxX) {
+		int[] ids = decodeRow(y, new int[width]);
+		int[] above = y > 0 ? decodeRow(y - 1, new int[width]) : null;
+		int top = y * Tile.WIDTH;
+
+		for (int x = minX; x < maxX; x++) {
+			int id = ids[x];
+			int left = x * Tile.WIDTH;
+			int[] texture = texturePixels.get(id);
+			int textureWidth = id == NO_TEXTURE ? 0 : textures.get(id).getWidth();
+			int textureHeight = id == NO_TEXTURE ? 0 : textures.get(id).getHeight();
+
+			for (int py = top; py < top + Tile.WIDTH; py++) {
+				int offset = py * stride;
+				if (texture == null) {
+					for (int px = left; px < left + Tile.WIDTH; px++) {
+						pixels[offset + px] = 0;
+					}
+					continue;
+				}
+				int textureOffset = (py % textureHeight) * textureWidth;
+				for (int px = left; px < left + Tile.WIDTH; px++) {
+					pixels[offset + px] = texture[textureOffset + px % textureWidth];
+				}
+			}
+
+			int leftId = x > 0 ? ids[x - 1] : NO_TEXTURE;
+			if (leftId != id) {
+				for (int py = top; py < top + Tile.WIDTH; py++) {
+					pixels[py * stride + left] = BORDER_COLOR;
+				}
+			}
+
+			int aboveId = above != null ? above[x] : NO_TEXTURE;
+			if (aboveId != id) {
+				for (int px = left; px < left + Tile.WIDTH; px++) {
+					pixels[top * stride + px] = BORDER_COLOR;
+				}
+			}
+		}
+	}
+
+	private int[] encodeRow(int[] ids) {
+		int numRuns = 0;
+		for (int x = 0; x < ids.length; x++) {
+			if (x == 0 || ids[x] != ids[x - 1]) {
+				numRuns++;
+			}
+		}
+		int[] runs = new int[2 * numRuns];
+		int i = 0;
+		for (int x = 0; x < ids.length; x++) {
+			if (x == 0 || ids[x] != ids[x - 1]) {
+				runs[i++] = x;
+				runs[i++] = ids[x];
+			}
+		}
+		return runs;
+	}
+
+	private int[] decodeRow(int y, int[] ids) {
+		int[] runs = rows[y];
+		for (int i = 0; i < runs.length; i += 2) {
+			int end = i + 2 < runs.length ? runs[i + 2] : width;
+			for (int x = runs[i]; x < end; x++) {
+				ids[x] = runs[i + 1];
+			}
+		}
+		return ids;
+	}
+
+	private int getTextureId(Tile tile) {
+		BufferedImage texture = tile == null ? null : tile.getBaseTexture();
+		if (texture == null) {
+			return NO_TEXTURE;
+		}
+		Integer id = textureIds.get(texture);
+		if (id == null) {
+			id = textures.size();
+			textures.add(texture);
+			texturePixels.add(texture.getRGB(0, 0, texture.getWidth(), texture.getHeight(), null, 0, texture.getWidth()));
+			textureIds.put(texture, id);
+		}
+		return id;
+	}
+
+	private static int[] getPixels(BufferedImage bitmap) {
+		return ((DataBufferInt) bitmap.getRaster().getDataBuffer()).getData();
+	}
+
+}
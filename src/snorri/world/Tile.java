@@ -8,7 +8,6 @@ import java.util.Collections;
 import java.util.List;
 
 import snorri.audio.ClipWrapper;
-import snorri.entities.Entity;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.semantics.nouns.Nominal;
@@ -27,15 +26,15 @@ public class Tile implements Comparable<Tile>, Nominal {
 									
 	protected TileType type;
 	private int style;
-	private boolean reachable;
-	private List<Entity> entities;
 		
 	protected static ClipWrapper[] sounds;
 	
+	/** Shared tiles for each packed value, created as they are first unpacked. */
+	private static final Tile[] FLYWEIGHTS = new Tile[1 << Character.SIZE];
+	
 	public Tile(TileType type, int style) {
 		this.type = type;
 		this.style = style;
-		entities = new ArrayList<>();
 	}
 	
 	private Tile() {
@@ -81,6 +80,27 @@ public class Tile implements Comparable<Tile>, Nominal {
 		this(UnifiedTileType.values()[id], style);
 	}
 
+	/**
+	 * Pack a tile into a char, with its type id in the high byte and its style in the low byte. This is the same
+	 * layout as a tile in a tile.layer file.
+	 */
+	char pack() {
+		return (char) (type.getId() << Byte.SIZE | style & 0xFF);
+	}
+	
+	/**
+	 * @return the shared tile for a packed value. Tiles can't be changed once created, so every cell holding the same
+	 * value can use the same one.
+	 */
+	static Tile unpack(char packed) {
+		Tile tile = FLYWEIGHTS[packed];
+		if (tile == null) {
+			tile = new Tile(UnifiedTileType.values()[packed >> Byte.SIZE], (byte) packed);
+			FLYWEIGHTS[packed] = tile;
+		}
+		return tile;
+	}
+
 	public static ArrayList<Tile> getAllTypes() {
 		ArrayList<Tile> list = new ArrayList<Tile>();
 		for (TileType type : UnifiedTileType.values()) {
@@ -104,7 +124,7 @@ public class Tile implements Comparable<Tile>, Nominal {
 	 * @param v the absolute grid position of the tile to be drawn
 	 */
 	public void drawTile(FocusedWindow<?> g, Graphics2D gr, Vector v) {
-		Vector relPos = v.getRelPosGrid(g);
+		Vector relPos = v.getRelPosGrid(g, gr);
 		drawTileAbs(gr, relPos, false);
 	}
 	
@@ -155,14 +175,6 @@ public class Tile implements Comparable<Tile>, Nominal {
 		return getType().getId() + ":" + getStyle();
 	}
 
-	public void setReachable(boolean b) {
-		reachable = b;
-	}
-	
-	public boolean isReachable() {
-		return reachable;
-	}
-
 	public boolean canShootOver() {
 		return type.canShootOver();
 	}
@@ -213,14 +225,6 @@ public class Tile implements Comparable<Tile>, Nominal {
 		return type.getBlendOrder() + 0.0001 * type.getId() + 0.0000001 * style;
 	}
 	
-	public void addEntity(Entity e) {
-		entities.add(e);
-	}
-	
-	public void removeEntity(Entity e) {
-		entities.remove(e);
-	}
-	
 	public static Rectangle getRectangle(int i, int j) {
 		return new Rectangle(i * Tile.WIDTH, j * Tile.WIDTH, Tile.WIDTH, Tile.WIDTH);
 	}
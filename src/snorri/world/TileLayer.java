@@ -1,22 +1,24 @@
 package snorri.world;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Rectangle;
-import java.awt.TexturePaint;
-import java.awt.geom.Area;
-import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
+import snorri.entities.Entity;
 import snorri.main.Debug;
 import snorri.windows.FocusedWindow;
 import snorri.world.TileType;
@@ -39,12 +41,23 @@ public class TileLayer implements SavableLayer {
 			new Vector(0, -1),
 	};
 
-	/** An array of tiles. Note that coordinates are Cartesian, not matrix-based. */
-	private Tile[][] map;
+	/**
+	 * The tiles, packed by <code>Tile.pack()</code> in x-major order, so the tile at (x, y) is at
+	 * <code>x * height + y</code>. Note that coordinates are Cartesian, not matrix-based.
+	 */
+	private char[] tiles;
+	private int width;
+	private int height;
+	
+	/** Which cells are reachable. Like <code>entities</code>, this is indexed like <code>tiles</code>. */
+	private BitSet reachable = new BitSet();
+	/** The entities on each cell, for the few cells that have any. */
+	private Map<Integer, List<Entity>> entities = new HashMap<>();
+	
 	private Tile outsideTile;
 	private RenderMode renderMode;
 	
-	private transient Map<BufferedImage, Area> textureMap;
+	private transient ScanlineTextureMap textureMap;
 	private transient BufferedImage bitmap;
 
 	private enum RenderMode {
@@ -53,24 +66,20 @@ public class TileLayer implements SavableLayer {
 
 	/** Create an incompletely initialized Layer.
 	 *  
-	 *  This method will leave null squares in the grid.
+	 *  This method will fill the grid with <code>EMPTY</code> tiles, since those pack to 0.
 	 *  
 	 *  @param width The width of the new World.
 	 *  @param height. The height of the new World.
 	 */
 	private TileLayer(int width, int height) {
-		map = new Tile[width][height];
+		setTiles(width, height, new char[width * height]);
 		setRenderMode(RenderMode.GRID);
 	}
 	
 	/** Initializes a new layer with background bg. */
 	public TileLayer(int width, int height, TileType bg) {
 		this(width, height);
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				map[i][j] = new Tile(bg);
-			}
-		}
+		Arrays.fill(tiles, new Tile(bg).pack());
 //		updateAllMasksAndBitmap();
 	}
 
@@ -84,8 +93,21 @@ public class TileLayer implements SavableLayer {
 //		updateAllMasksAndBitmap();
 	}
 	
+	/** Read a layer from a file's contents, like one packed in a world bundle. */
+	TileLayer(String source, ByteBuffer buffer) throws IOException {
+		Debug.logger.info("Loading " + source + "...");
+		TileLayerFormat.read(source, buffer, this);
+		setRenderMode(RenderMode.GRID);
+	}
+	
 	public static TileLayer fromYAML(World world, Map<String, Object> params) throws IOException {
-		File file = new File(world.getDirectory(), (String) params.get("path"));
+		String path = (String) params.get("path");
+		WorldBundle bundle = world.getBundle();
+		ByteBuffer packed = bundle == null ? null : bundle.get(path);
+		if (packed != null) {
+			return new TileLayer(bundle.getSource(path), packed);
+		}
+		File file = new File(world.getDirectory(), path);
 		return new TileLayer(file);
 	}
 	
@@ -107,21 +129,17 @@ public class TileLayer implements SavableLayer {
 	public TileLayer copy() {
 		Vector dims = getDimensions();
 		TileLayer layer = new TileLayer(dims.getX(), dims.getY());
-		for (int x = 0; x < dims.getX(); x++) {
-			for (int y = 0; y < dims.getY(); y++) {
-				layer.map[x][y] = map[x][y];
-			}
-		}
+		System.arraycopy(tiles, 0, layer.tiles, 0, tiles.length);
 		layer.outsideTile = outsideTile;
 		layer.renderMode = renderMode;
 		return layer;
 	}
 
 	public TileLayer getTransposed() {
-		TileLayer t = new TileLayer(getDimensions(), outsideTile.getType());
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				t.setTileGrid(y, x, getNewTileGrid(x, y));
+		TileLayer t = new TileLayer(height, width);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				t.tiles[y * width + x] = tiles[x * height + y];
 			}
 		}
 		return t;
@@ -133,33 +151,24 @@ public class TileLayer implements SavableLayer {
 	 * out from all four sides if a door exists.
 	 */
 	public TileLayer getXReflected() {
-		TileLayer f = new TileLayer(getDimensions(), outsideTile.getType());
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				f.setTileGrid(getWidth() - 1 - x, y, getNewTileGrid(x, y));
-			}
+		TileLayer f = new TileLayer(width, height);
+		for (int x = 0; x < width; x++) {
+			System.arraycopy(tiles, x * height, f.tiles, (width - 1 - x) * height, height);
 		}
 		return f;
 	}
 
 	private void resize(int newWidth, int newHeight) {
 
-		Tile[][] newMap = new Tile[newWidth][newHeight];
-		Vector newDim = new Vector(newWidth, newHeight);
+		// New tiles are EMPTY, which packs to 0.
+		char[] newTiles = new char[newWidth * newHeight];
 
-		for (int i = 0; i < newDim.getX(); i++) {
-			for (int j = 0; j < newDim.getY(); j++) {
-				newMap[i][j] = new Tile(UnifiedTileType.EMPTY);
-			}
-		}
-		Debug.logger.info("Resizing Level from\t" + getWidth() + "\tx\t" + getHeight() + "\tto\t" + newDim.getX() + "\tx\t" + newDim.getY() +"\tusing resize function.");
-		for (int i = 0; i < newDim.getX() && i < getWidth(); i++) {
-			for (int j = 0; j < newDim.getY() && j < getHeight(); j++) {
-				newMap[i][j] = map[i][j];
-			}
+		Debug.logger.info("Resizing Level from\t" + getWidth() + "\tx\t" + getHeight() + "\tto\t" + newWidth + "\tx\t" + newHeight +"\tusing resize function.");
+		for (int i = 0; i < newWidth && i < getWidth(); i++) {
+			System.arraycopy(tiles, i * height, newTiles, i * newHeight, Math.min(newHeight, height));
 		}
 
-		map = newMap;
+		setTiles(newWidth, newHeight, newTiles);
 		Debug.logger.info("New Level Size:\t" + getWidth() + "\tx\t" + getHeight() + ".");		
 	}
 
@@ -174,10 +183,16 @@ public class TileLayer implements SavableLayer {
 	}
 
 	public void setTileGrid(int x, int y, Tile t) {
-		if (x < 0 || x >= map.length || y < 0 || y >= map[x].length) {
+		if (!isInBounds(x, y) || t == null) {
 			return;
 		}
-		map[x][y] = t;
+		tiles[x * height + y] = t.pack();
+		if (textureMap != null) {
+			textureMap.update(x, y, t);
+			if (bitmap != null) {
+				textureMap.rasterize(bitmap, x, y);
+			}
+		}
 	}
 
 	public Tile getTile(int x, int y) {
@@ -188,21 +203,26 @@ public class TileLayer implements SavableLayer {
 		return getTile(v.getX(), v.getY());
 	}
 
+	/**
+	 * Since tiles can't be changed, this is now the same as <code>getTileGrid</code>.
+	 */
 	public Tile getNewTileGrid(int x, int y) {
-		if (x < 0 || x >= map.length || y < 0 || y >= map[x].length) {
-			return null;
-		}
-		if (getTileGrid(x, y) == null) {
-			return null;
-		}
-		return new Tile(getTileGrid(x, y));
+		return getTileGrid(x, y);
 	}
 
+	/**
+	 * @return the tile at a grid position, or null if it is off the map. The tile is shared with every other cell
+	 * holding the same type and style.
+	 */
 	public Tile getTileGrid(int x, int y) {
-		if (x < 0 || x >= map.length || y < 0 || y >= map[x].length) {
+		if (!isInBounds(x, y)) {
 			return null;
 		}
-		return map[x][y];
+		return Tile.unpack(tiles[x * height + y]);
+	}
+	
+	private boolean isInBounds(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
 	}
 
 	public Tile getTileGrid(Vector v) {
@@ -217,7 +237,7 @@ public class TileLayer implements SavableLayer {
 	public void render(FocusedWindow<?> g, Graphics2D gr, double deltaTime, boolean renderOutside) {
 		int minX, maxX, minY, maxY;
 		Vector center = g.getCenterObject().getPos();
-		Vector dim = g.getDimensions();
+		Vector dim = g.getDimensions(gr);
 
 		if (!Debug.maskingDisabled() && getRenderMode() == RenderMode.BITMAP) {
 			if (bitmap == null) {
@@ -241,8 +261,8 @@ public class TileLayer implements SavableLayer {
 
 		for (int i = minX; i < maxX; i++) {
 			for (int j = minY; j < maxY; j++) {
-				if (i >= 0 && i < map.length && j >= 0 && j < map[i].length) {
-					map[i][j].drawTile(g, gr, new Vector(i, j));
+				if (isInBounds(i, j)) {
+					Tile.unpack(tiles[i * height + j]).drawTile(g, gr, new Vector(i, j));
 				} else if (renderOutside) {
 					getOutsideTile().drawTile(g,  gr, new Vector(i, j));
 				}
@@ -252,26 +272,21 @@ public class TileLayer implements SavableLayer {
 
 	public void load(File file) throws FileNotFoundException, IOException {
 		Debug.logger.info("Loading " + file + "...");
-		byte[] b = new byte[4];
-		FileInputStream is = new FileInputStream(file);
-
-		is.read(b);
-		int width = ByteBuffer.wrap(b).getInt();
-		is.read(b);
-		int height = ByteBuffer.wrap(b).getInt();
-
-		map = new Tile[width][height];
-		byte[] b2 = new byte[2];
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				is.read(b2);
-				int id = ((Byte) b2[0]).intValue();
-				TileType type = UnifiedTileType.values()[id];
-				int style = ((Byte) b2[1]).intValue();
-				map[i][j] = new Tile(type, style);
-			}
-		}
-		is.close();
+		TileLayerFormat.read(file, this);
+	}
+	
+	/** Replace the whole grid, dropping any side data for the old one. */
+	void setTiles(int width, int height, char[] tiles) {
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+		reachable.clear();
+		entities.clear();
+	}
+	
+	/** @return the packed tiles, in the order described for <code>tiles</code> */
+	char[] getTiles() {
+		return tiles;
 	}
 
 	public void save(File file) throws IOException {
@@ -279,23 +294,7 @@ public class TileLayer implements SavableLayer {
 	}
 
 	public void save(File file, boolean saveGraphs) throws IOException {
-		FileOutputStream os = new FileOutputStream(file);
-		ByteBuffer b1 = ByteBuffer.allocate(4);
-		ByteBuffer b2 = ByteBuffer.allocate(4);
-
-		byte[] buffer = b1.putInt(getWidth()).array();
-		os.write(buffer);
-		buffer = b2.putInt(getHeight()).array();
-		os.write(buffer);
-
-		for (int i = 0; i < getWidth(); i++) {
-			for (int j = 0; j < getHeight(); j++) {
-				os.write(((byte) map[i][j].getType().getId()) & 0xFF);
-				os.write(((byte) map[i][j].getStyle()) & 0xFF);
-			}
-		}
-
-		os.close();
+		TileLayerFormat.write(file, this, Debug.tileLayersCompressed());
 	}
 
 	public void setTileGrid(Vector v, Tile newTile) {
@@ -343,11 +342,43 @@ public class TileLayer implements SavableLayer {
 	}
 
 	public int getWidth() {
-		return map.length;
+		return width;
 	}
 
 	public int getHeight() {
-		return map[0].length;
+		return height;
+	}
+	
+	public void setReachable(int x, int y, boolean b) {
+		if (isInBounds(x, y)) {
+			reachable.set(x * height + y, b);
+		}
+	}
+	
+	public boolean isReachable(int x, int y) {
+		return isInBounds(x, y) && reachable.get(x * height + y);
+	}
+	
+	public void addEntity(int x, int y, Entity e) {
+		if (isInBounds(x, y)) {
+			entities.computeIfAbsent(x * height + y, k -> new ArrayList<>()).add(e);
+		}
+	}
+	
+	public void removeEntity(int x, int y, Entity e) {
+		if (!isInBounds(x, y)) {
+			return;
+		}
+		List<Entity> list = entities.get(x * height + y);
+		if (list != null && list.remove(e) && list.isEmpty()) {
+			entities.remove(x * height + y);
+		}
+	}
+	
+	/** @return the entities on a cell, which is empty for most cells */
+	public List<Entity> getEntities(int x, int y) {
+		List<Entity> list = isInBounds(x, y) ? entities.get(x * height + y) : null;
+		return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
 	}
 
 	public boolean canShootOver(Vector pos) {
@@ -359,61 +390,27 @@ public class TileLayer implements SavableLayer {
 	 * Builds a mapping from each texture in the level to the area where that
 	 * texture should be drawn.
 	 * 
-	 * @return the computed mapping
+	 * The mapping is stored as runs of tiles along each row, so it is built in one
+	 * pass and single tile updates only touch one row.
 	 */
 	public void computeTextureMap() {
-		textureMap = new HashMap<>();
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				if (map[x][y].getBaseTexture() != null) {
-					if (!textureMap.containsKey(map[x][y].getBaseTexture())) {
-						textureMap.put(map[x][y].getBaseTexture(), new Area());
-					}
-					textureMap.get(map[x][y].getBaseTexture())
-							.add(new Area(new Rectangle(x * Tile.WIDTH, y * Tile.WIDTH, Tile.WIDTH, Tile.WIDTH)));
-				}
-				// A lot of old logic for masking was removed from here.
-			}
-		}
+		textureMap = new ScanlineTextureMap(this);
 	}
 
-	// see
-	// https://gamedev.stackexchange.com/questions/72924/how-do-i-add-an-image-inside-a-rectangle-or-a-circle-in-javafx
 	// see
 	// https://www.cse.iitb.ac.in/~paragc/teaching/2012/cs775/assignments/A3/groups/jai+ahana/Depixelizing%20pixelArt.pdf
-	// TODO want to implement this second paper for blending nearby stuff
-
-	// TODO general path:
-	// https://docs.oracle.com/javase/tutorial/2d/geometry/arbitrary.html
-
-	// TODO maybe cut the area, draw images directly
-	// confirmed: can draw non-Rectangles onto the other shape
-	// solution: make a path2d through all the border points
+	// TODO want to implement this paper for blending nearby stuff
 
 	/**
 	 * Render the full bitmap of this level. Should only be called if
 	 * <code>this.getRenderMode() == RenderMode.BITMAP</code>
 	 */
 	public void renderBitmap() {
-		bitmap = new BufferedImage(getWidth() * Tile.WIDTH, getHeight() * Tile.WIDTH, BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = bitmap.createGraphics();
-		for (Tile tile : Tile.getBlendOrdering()) {
-
-			BufferedImage texture = tile.getBaseTexture();
-			if (!textureMap.containsKey(texture)) {
-				continue;
-			}
-
-			Rectangle r = new Rectangle(0, 0, texture.getWidth(), texture.getHeight());
-			g.setPaint(new TexturePaint(texture, r));
-			g.fill(textureMap.get(texture));
-
-			g.setColor(Color.BLACK);
-			Path2D path = new Path2D.Double(textureMap.get(texture));
-			g.draw(path);
-
+		if (textureMap == null) {
+			computeTextureMap();
 		}
-		g.dispose();
+		bitmap = new BufferedImage(getWidth() * Tile.WIDTH, getHeight() * Tile.WIDTH, BufferedImage.TYPE_INT_ARGB);
+		textureMap.rasterize(bitmap);
 	}
 	
 	public void setRenderMode(RenderMode renderMode) {
@@ -426,7 +423,7 @@ public class TileLayer implements SavableLayer {
 	}
 
 	public Tile getOutsideTile() {
-		return outsideTile != null ? outsideTile : map[0][0];
+		return outsideTile != null ? outsideTile : getTileGrid(0, 0);
 	}
 
 	public void setOutsideTile(Tile outsideTile) {
@@ -456,6 +453,73 @@ public class TileLayer implements SavableLayer {
 		}
 	}
 	
+	/**
+	 * Find the region of tiles connected to a start tile.
+	 * 
+	 * The search is breadth first over a queue rather than recursive, and visited tiles are marked in a bitmap, so it
+	 * works on regions of any size.
+	 * 
+	 * @param start The grid position to start from.
+	 * @param connections The translations from a tile to the tiles connected to it.
+	 * @param include Which tiles belong to the region.
+	 * @return The grid positions in the region, in the order they were reached. Empty if the start tile isn't included.
+	 */
+	public List<Vector> floodFill(Vector start, Vector[] connections, Predicate<Tile> include) {
+		List<Vector> region = new ArrayList<>();
+		Tile startTile = getTileGrid(start);
+		if (startTile == null || !include.test(startTile)) {
+			return region;
+		}
+		
+		int height = getHeight();
+		BitSet visited = new BitSet(getWidth() * height);
+		int[] queue = new int[16];
+		int head = 0, tail = 0;
+		queue[tail++] = start.getX() * height + start.getY();
+		visited.set(queue[0]);
+		
+		while (head < tail) {
+			int x = queue[head] / height;
+			int y = queue[head++] % height;
+			region.add(new Vector(x, y));
+			for (Vector translation : connections) {
+				int nx = x + translation.getX();
+				int ny = y + translation.getY();
+				Tile tile = getTileGrid(nx, ny);
+				int index = nx * height + ny;
+				if (tile == null || visited.get(index) || !include.test(tile)) {
+					continue;
+				}
+				visited.set(index);
+				if (tail == queue.length) {
+					queue = Arrays.copyOf(queue, 2 * queue.length);
+				}
+				queue[tail++] = index;
+			}
+		}
+		return region;
+	}
+	
+	/** @see #floodFill(Vector, Vector[], Predicate) */
+	public List<Vector> floodFill(Vector start, Predicate<Tile> include) {
+		return floodFill(start, NEIGHBOR_TRANSLATIONS, include);
+	}
+	
+	/**
+	 * Replace a batch of tiles.
+	 * 
+	 * @param positions The grid positions of the tiles to replace.
+	 * @param replace Maps each old tile to the tile replacing it.
+	 */
+	public void setTilesGrid(Collection<Vector> positions, UnaryOperator<Tile> replace) {
+		for (Vector pos : positions) {
+			Tile tile = getTileGrid(pos);
+			if (tile != null) {
+				setTileGrid(pos, replace.apply(tile));
+			}
+		}
+	}
+	
 	public boolean isSurface(Vector pos) {
 		return getTileGrid(pos.add(new Vector(0, 1))).getType().isOccupied() && !getTileGrid(pos).getType().isOccupied() && !getTileGrid(pos.sub(new Vector(0, 1))).getType().isOccupied();
 	}
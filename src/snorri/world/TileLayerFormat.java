@@ -0,0 +1,210 @@
+package snorri.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes tile.layer files in bulk, with one read or gathering write through a <code>FileChannel</code>.
+ *
+ * A file starts with a header: the magic number, the format version, flags, the width and height, the length of the
+ * body as stored, and a CRC32 checksum of the uncompressed body. The body holds two bytes per tile, its type id and
+ * its style, in x-major order, and is deflated if <code>DEFLATED</code> is set. Read as big-endian chars, these are
+ * exactly the packed tiles a <code>TileLayer</code> holds.
+ *
+ * Files written before the header existed hold only the width, the height, and an uncompressed body. They can still be
+ * read: their first int is a width, which is never as large as the magic number.
+ */
+class TileLayerFormat {
+
+	static final int MAGIC = 0x544C5952; // "TLYR"
+	static final int VERSION = 2;
+	static final int DEFLATED = 1;
+
+	private static final int HEADER_SIZE = 7 * Integer.BYTES;
+	private static final int BYTES_PER_TILE = 2;
+
+	private TileLayerFormat() {
+	}
+
+	/** Read a layer's tiles from a file into it. */
+	static void read(File file, TileLayer layer) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// Read into the heap rather than mapping, since a mapped file can't be overwritten on Windows until the
+			// mapping is garbage collected, and the editor saves over the layers it loads.
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					break;
+				}
+			}
+			buffer.flip();
+			read(file.getPath(), buffer, layer);
+		}
+	}
+
+	/**
+	 * Read a layer's tiles from a whole file's contents, which may be part of a larger buffer like a world bundle.
+	 * @param source
+	 * 	where the buffer came from, for error messages
+	 */
+	static void read(String source, ByteBuffer buffer, TileLayer layer) throws IOException {
+		buffer = buffer.slice();
+		if (buffer.remaining() < 2 * Integer.BYTES) {
+			throw new IOException(source + " is too short to be a tile layer.");
+		}
+		if (buffer.getInt(0) != MAGIC) {
+			readLegacy(source, buffer, layer);
+			return;
+		}
+
+		if (buffer.remaining() < HEADER_SIZE) {
+			throw new IOException(source + " has a truncated header.");
+		}
+		buffer.getInt();
+		int version = buffer.getInt();
+		if (version > VERSION) {
+			throw new IOException(source + " has tile layer version " + version + ", newer than " + VERSION + ".");
+		}
+		int flags = buffer.getInt();
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		int length = buffer.getInt();
+		int checksum = buffer.getInt();
+		checkSize(source, width, height);
+		if (length < 0) {
+			throw new IOException(source + " has a body of negative length " + length + ".");
+		}
+		if (buffer.remaining() < length) {
+			throw new IOException(source + " is truncated.");
+		}
+
+		ByteBuffer body = buffer.slice();
+		body.limit(length);
+		if ((flags & DEFLATED) != 0) {
+			body = inflate(source, body, width * height * BYTES_PER_TILE);
+		} else if (length != width * height * BYTES_PER_TILE) {
+			throw new IOException(source + " has " + length + " bytes of tiles for a " + width + "x" + height + " layer.");
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(body.duplicate());
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(source + " failed its checksum.");
+		}
+		decode(source, body, width, height, layer);
+	}
+
+	private static void readLegacy(String source, ByteBuffer buffer, TileLayer layer) throws IOException {
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		checkSize(source, width, height);
+		if (buffer.remaining() < width * height * BYTES_PER_TILE) {
+			throw new IOException(source + " is truncated.");
+		}
+		decode(source, buffer, width, height, layer);
+	}
+
+	/** Reject sizes a layer can't have before anything is allocated for them, so a corrupt header fails cleanly. */
+	private static void checkSize(String source, int width, int height) throws IOException {
+		if (width <= 0 || height <= 0 || width > TileLayer.MAX_SIZE || height > TileLayer.MAX_SIZE) {
+			throw new IOException(source + " has a " + width + "x" + height + " layer, which isn't between 1x1 and "
+					+ TileLayer.MAX_SIZE + "x" + TileLayer.MAX_SIZE + ".");
+		}
+	}
+
+	private static ByteBuffer inflate(String source, ByteBuffer body, int size) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			byte[] compressed = new byte[body.remaining()];
+			body.get(compressed);
+			inflater.setInput(compressed);
+			byte[] out = new byte[size];
+			int n = 0;
+			while (n < size && !inflater.finished()) {
+				int read = inflater.inflate(out, n, size - n);
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += read;
+			}
+			if (n != size || !inflater.finished()) {
+				throw new IOException(source + " has a corrupt compressed body.");
+			}
+			return ByteBuffer.wrap(out);
+		} catch (DataFormatException e) {
+			throw new IOException(source + " has a corrupt compressed body.", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/** Copy the packed tiles straight out of the buffer, checking that every type exists. */
+	private static void decode(String source, ByteBuffer body, int width, int height, TileLayer layer) throws IOException {
+		char[] tiles = new char[width * height];
+		body.duplicate().asCharBuffer().get(tiles);
+		int types = UnifiedTileType.values().length;
+		for (char tile : tiles) {
+			if (tile >> Byte.SIZE >= types) {
+				throw new IOException(source + " has a tile of unknown type " + (tile >> Byte.SIZE) + ".");
+			}
+		}
+		layer.setTiles(width, height, tiles);
+	}
+
+	static void write(File file, TileLayer layer, boolean deflate) throws IOException {
+		int width = layer.getWidth();
+		int height = layer.getHeight();
+
+		byte[] raw = new byte[width * height * BYTES_PER_TILE];
+		ByteBuffer.wrap(raw).asCharBuffer().put(layer.getTiles());
+
+		CRC32 crc = new CRC32();
+		crc.update(raw);
+
+		ByteBuffer body = ByteBuffer.wrap(raw);
+		if (deflate) {
+			body = deflate(raw);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(deflate ? DEFLATED : 0).putInt(width).putInt(height)
+				.putInt(body.remaining()).putInt((int) crc.getValue());
+		header.flip();
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer[] buffers = new ByteBuffer[] { header, body };
+			while (header.hasRemaining() || body.hasRemaining()) {
+				channel.write(buffers);
+			}
+		}
+	}
+
+	private static ByteBuffer deflate(byte[] raw) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			byte[] out = new byte[raw.length / 4 + 64];
+			int n = 0;
+			while (!deflater.finished()) {
+				if (n == out.length) {
+					out = Arrays.copyOf(out, 2 * out.length);
+				}
+				n += deflater.deflate(out, n, out.length - n);
+			}
+			return ByteBuffer.wrap(out, 0, n);
+		} finally {
+			deflater.end();
+		}
+	}
+
+}
@@ -2,39 +2,45 @@ package snorri.world;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import snorri.main.Assets;
 import snorri.main.Debug;
-import snorri.main.Main;
+import snorri.util.Lazy;
 
 public enum UnifiedTileType implements TileType {
 	
-	EMPTY((BufferedImage) null, Param.isOccupied(false)),
-	SAND(new BufferedImage[] {
-			Main.getImage("/textures/tiles/background/sand00.png"),
-			Main.getImage("/textures/tiles/background/sand01.png"),
-			Main.getImage("/textures/tiles/background/sand02.png"),
-			Main.getImage("/textures/tiles/background/sand03.png"),
+	EMPTY((String) null, Param.isOccupied(false)),
+	SAND(new String[] {
+			"/textures/tiles/background/sand00.png",
+			"/textures/tiles/background/sand01.png",
+			"/textures/tiles/background/sand02.png",
+			"/textures/tiles/background/sand03.png",
 	},
     Param.changable(true), Param.blendOrder(1.5)),
-	DEBRIS(Main.getImage("/textures/tiles/midground/debris00.png")),
-	BROKEN_DEBRIS(Main.getImage("/textures/tiles/midground/brokendebris00.png"), Param.replacementType(EMPTY)),
-	WATER(new BufferedImage[] {
-			Main.getImage("/textures/tiles/background/water00.png"),
-			Main.getImage("/textures/tiles/background/water01.png"),
+	DEBRIS("/textures/tiles/midground/debris00.png"),
+	BROKEN_DEBRIS("/textures/tiles/midground/brokendebris00.png", Param.replacementType(EMPTY)),
+	WATER(new String[] {
+			"/textures/tiles/background/water00.png",
+			"/textures/tiles/background/water01.png",
 	}, Param.swimmable(true), Param.isOccupied(false)),
-	TRIPWIRE(TileType.getTwoRotations(Main.getImage("/textures/tiles/foreground/tripwire00.png")), Param.isOccupied(false)),
-	TRIPWIRE_END(TileType.getReflections(Main.getImage("/textures/tiles/foreground/tripwireend00.png")), Param.isOccupied(false)),
-	DOOR(new BufferedImage[] {
-			Main.getImage("/textures/tiles/door00.png"),
-			Main.getImage("/textures/tiles/door01.png"),
+	TRIPWIRE("/textures/tiles/foreground/tripwire00.png", 2, TileType::getTwoRotations, Param.isOccupied(false)),
+	TRIPWIRE_END("/textures/tiles/foreground/tripwireend00.png", 4, TileType::getReflections, Param.isOccupied(false)),
+	DOOR(new String[] {
+			"/textures/tiles/door00.png",
+			"/textures/tiles/door01.png",
 	}, Param.replacementTile(new Tile(EMPTY))),
-	WALL(new BufferedImage[] {
-			Main.getImage("/textures/tiles/background/wall08.png"),
-			Main.getImage("/textures/tiles/background/wall09.png"),
+	WALL(new String[] {
+			"/textures/tiles/background/wall08.png",
+			"/textures/tiles/background/wall09.png",
 	}),
-	LAVA(Main.getImage("/textures/tiles/default00.png"), Param.damage(10));
+	LAVA("/textures/tiles/default00.png", Param.damage(10));
 	
-	private final BufferedImage[] textures;
+	/** The images the textures are made from, which are only decoded when the textures are first drawn. */
+	private final String[] paths;
+	private final int numberStyles;
+	private final Lazy<BufferedImage[]> textures;
 	
 	// Default values for these fields can be used by passing Param.
 	private boolean isOccupied = true;
@@ -46,15 +52,34 @@ public enum UnifiedTileType implements TileType {
 	private UnifiedTileType replacementType = null;
 	private double damage = 0;
 	
-	UnifiedTileType(BufferedImage[] textures, Param<?>...params) {
-		this.textures = textures;
+	UnifiedTileType(String[] paths, int numberStyles, Supplier<BufferedImage[]> textures, Param<?>...params) {
+		this.paths = paths;
+		this.numberStyles = numberStyles;
+		this.textures = new Lazy<>(textures);
 		for (Param<?> param : params) {
 			setParam(param);
 		}
 	}
 	
-	UnifiedTileType(BufferedImage texture, Param<?>...params){
-		this(new BufferedImage[] {texture}, params);
+	UnifiedTileType(String[] paths, Param<?>...params) {
+		this(paths, paths.length, () -> load(paths), params);
+	}
+	
+	UnifiedTileType(String path, Param<?>...params) {
+		this(new String[] {path}, params);
+	}
+	
+	/** For types whose styles are all made from one image, like rotations of it. */
+	UnifiedTileType(String path, int numberStyles, Function<BufferedImage, BufferedImage[]> styles, Param<?>...params) {
+		this(new String[] {path}, numberStyles, () -> styles.apply(Assets.getImage(path)), params);
+	}
+	
+	private static BufferedImage[] load(String[] paths) {
+		BufferedImage[] textures = new BufferedImage[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			textures[i] = paths[i] == null ? null : Assets.getImage(paths[i]);
+		}
+		return textures;
 	}
 	
 	@Override
@@ -97,17 +122,22 @@ public enum UnifiedTileType implements TileType {
 
 	@Override
 	public BufferedImage[] getTextures() {
-		return textures;
+		return textures.get();
 	}
 
 	@Override
 	public BufferedImage getTexture(int index) {
-		return textures[index];
+		return textures.get()[index];
 	}
 
 	@Override
 	public int getNumberStyles() {
-		return textures.length;
+		return numberStyles;
+	}
+	
+	/** @return the paths of the images this type's textures are made from, for preloading them */
+	public String[] getTexturePaths() {
+		return paths.clone();
 	}
 
 	@Override
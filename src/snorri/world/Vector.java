@@ -1,6 +1,7 @@
 package snorri.world;
 
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
@@ -63,13 +64,14 @@ public class Vector implements Nominal, Comparable<Vector> {
 	}
 	
 	/** Assuming the vector represents a position in absolute grid coordinates, return a translated vector in relative grid coordinates. */
-	public Vector getRelPosGrid(FocusedWindow<?> g) {
-		return copy().multiply_(Tile.WIDTH).getRelPos(g);
+	public Vector getRelPosGrid(FocusedWindow<?> g, Graphics gr) {
+		return copy().multiply_(Tile.WIDTH).getRelPos(g, gr);
 	}
 	
-	public Vector getRelPos(FocusedWindow<?> g) {
+	/** @return this absolute position relative to the area <code>gr</code> draws into */
+	public Vector getRelPos(FocusedWindow<?> g, Graphics gr) {
 		Vector focusPos = g.getCenterObject().getPos(); //returns whatever is being used to draw the center
-		return copy().sub_(focusPos).add_(g.getDimensions().divide_(2));
+		return copy().sub_(focusPos).add_(g.getCenter(gr));
 	}
 
 	public int getX() {
@@ -5,10 +5,16 @@ import java.awt.Graphics2D;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import net.sourceforge.yamlbeans.YamlException;
 import snorri.entities.Center;
@@ -17,16 +23,21 @@ import snorri.entities.Player;
 import snorri.entities.EntityTree;
 import snorri.entities.Spawn;
 import snorri.entities.Unit;
+import snorri.main.Assets;
 import snorri.main.Debug;
 import snorri.main.Main;
 import snorri.triggers.TriggerMap;
 import snorri.windows.FocusedWindow;
+import snorri.world.Layer.LayerType;
 
 public class World implements Playable, Editable {
 
 	public static final Vector DEFAULT_LEVEL_SIZE = new Vector(13, 8);
 	public static final Vector DEFAULT_SPAWN = new Vector(100, 100);
 	public static final int UPDATE_RADIUS = 4000;
+	/** The key in <code>config.yml</code> naming the region file of a world stored as a region. */
+	public static final String REGION_KEY = "region";
+	public static final String REGION_FILENAME = "region.layer";
 	private static final Vector EDGE_TP_DELTA = new Vector(Unit.RADIUS_X + 10, Unit.RADIUS_Y + 10);
 
 	private File directory;
@@ -37,6 +48,12 @@ public class World implements Playable, Editable {
 	private List<Layer> layers;
 	private TileLayer tileLayer;
 	private EntityLayer entityLayer;
+	/** If this world is stored as a region, streams its entities in and out around the focus. */
+	private RegionStreamer region;
+	/** The world as loaded from its layers, which quick-saves are relative to. */
+	private Baseline baseline;
+	/** The bundle layers are read from while this is being loaded, if there is one. */
+	private WorldBundle bundle;
 
 	private TriggerMap triggers;
 	
@@ -71,10 +88,32 @@ public class World implements Playable, Editable {
 	}
 
 	public World(File file, Player p) throws FileNotFoundException, IOException {
-		load(file);
+		this(file, p, null, null);
+	}
+		
+	/**
+	 * @param yaml
+	 * 	the parsed config, or null to parse it
+	 * @param bundle
+	 * 	the bundle to read the config and layers from, or null to read the loose files
+	 */
+	public World(File file, Player p, Map<String, Object> yaml, WorldBundle bundle) throws IOException {
+		this.bundle = bundle;
+		try {
+			load(file, yaml);
+		} catch (YamlException e) {
+			Debug.logger.log(java.util.logging.Level.SEVERE, "Couldn't parse config.yml.", e);
+		} finally {
+			// Let go of the bundle, so its mapping can be released.
+			this.bundle = null;
+		}
 		if (p != null) {
 			spawnPlayer(p);
 		}
+		if (region != null) {
+			Entity focus = computeFocus();
+			region.loadAround(focus == null ? findCenter() : focus);
+		}
 	}
 		
 	public World(File file) throws FileNotFoundException, IOException {
@@ -97,7 +136,7 @@ public class World implements Playable, Editable {
 	 */
 	public static World createDefaultWorld(Vector dims) {
 		World world = new World(dims.getX(), dims.getY());
-		world.addLayer(new BackgroundLayer(world, BackgroundLayer.DEFAULT_BACKGROUND));
+		world.addLayer(new BackgroundLayer(world, Assets.getImage(BackgroundLayer.DEFAULT_BACKGROUND)));
 		world.addLayer(new TileLayer(dims.getX(), dims.getY(), UnifiedTileType.EMPTY));
 		world.addLayer(new EntityLayer(world));
 		return world;
@@ -126,6 +165,7 @@ public class World implements Playable, Editable {
 	}
 
 	public synchronized void update(Entity focus, double d) {
+		stream(focus);
 		getEntityLayer().updateAround(this, d, focus);
 		
 		World neighbor;
@@ -141,6 +181,17 @@ public class World implements Playable, Editable {
 
 	}
 
+	/**
+	 * If this world is stored as a region, load the entities that have been read around the focus and start reading
+	 * the ones it is moving towards. This is called by <code>update</code> rather than while rendering, and chunks are read
+	 * in the background, so it doesn't wait for them.
+	 */
+	public synchronized void stream(Entity focus) {
+		if (region != null) {
+			region.stream(focus);
+		}
+	}
+
 	@Override
 	public synchronized void render(FocusedWindow<?> g, Graphics2D gr, double deltaTime, boolean showOutlands) {
 		layers.forEach(layer -> {
@@ -190,10 +241,24 @@ public class World implements Playable, Editable {
 			f.mkdir();
 		}
 		
+		boolean newConfig = !new File(f, "config.yml").exists();
 		Playable.tryCreatingDefaultConfig(f, PlayableType.WORLD);
 		
 		String path = f.getPath();
+		if (region != null) {
+			File saveFile = new File(path, region.getFile().getName());
+			if (newConfig) {
+				addRegionToConfig(f, saveFile.getName());
+			}
+			Debug.logger.info("Saving " + saveFile.getName() + "...");
+			synchronized (this) {
+				region.save(saveFile);
+			}
+		}
 		layers.forEach(layer -> {
+			if (region != null && (layer == tileLayer || layer == entityLayer)) {
+				return;
+			}
 			if (layer instanceof SavableLayer) {
 				SavableLayer savableLayer = (SavableLayer) layer;
 				File saveFile = new File(path, savableLayer.getFilename());
@@ -223,7 +288,7 @@ public class World implements Playable, Editable {
 		name = f.getName();
 		
 		if (yaml == null) {
-			yaml = Playable.getConfig(f, PlayableType.WORLD);
+			yaml = bundle != null ? bundle.getConfig() : Playable.getConfig(f, PlayableType.WORLD);
 		}
 		
 		this.layers = new ArrayList<>();
@@ -232,7 +297,26 @@ public class World implements Playable, Editable {
 			File configFile = new File(f, "config.yml");
 			throw new IllegalArgumentException("No layers specified in " + configFile.getAbsolutePath() + ".");
 		}
+		
+		if (region != null) {
+			region.close();
+			region = null;
+		}
+		String regionPath = (String) yaml.get(REGION_KEY);
+		if (regionPath != null) {
+			File regionFile = new File(f, regionPath);
+			if (regionFile.exists()) {
+				region = RegionStreamer.open(regionFile);
+			} else {
+				Debug.logger.warning("No region " + regionFile + ", so loading layers instead.");
+			}
+		}
+		
 		layers.forEach(params -> {
+			if (region != null && !LayerType.BACKGROUND.name().equals(params.get("type"))) {
+				// The region replaces the tile and entity layers.
+				return;
+			}
 			try {
 				Layer layer = Layer.fromYAML(this, params);
 				addLayer(layer);
@@ -242,6 +326,10 @@ public class World implements Playable, Editable {
 				Debug.logger.log(java.util.logging.Level.SEVERE, "Could not read layers in World.", e);
 			}
 		});
+		if (region != null) {
+			addLayer(region.getTileLayer());
+			addLayer(region.getEntityLayer());
+		}
 
 		String outside = (String) yaml.get("outsideTile");
 		if (outside != null) {
@@ -249,6 +337,7 @@ public class World implements Playable, Editable {
 		}
 		
 		triggers = TriggerMap.load((Map<String, Object>) yaml.get("triggers"), this);
+		baseline = region == null ? new Baseline(this) : null;
 	}
 
 	/**
@@ -265,13 +354,49 @@ public class World implements Playable, Editable {
 	}
 
 	private World getTransformed(Function<Layer, Layer> layerTransformer) {
+		if (region != null) {
+			try {
+				region.loadAll();
+			} catch (IOException e) {
+				Debug.logger.log(java.util.logging.Level.SEVERE, "Could not load all of " + region.getFile() + ".", e);
+			}
+		}
 		World world = new World(width, height);
 		layers.forEach(layer -> {
 			world.addLayer(layerTransformer.apply(layer));
 		});
+		if (region != null) {
+			world.region = RegionStreamer.wrap(region.getFile(), world.tileLayer, world.entityLayer);
+		}
 		return world;
 	}
 	
+	/**
+	 * Store this world as a region from now on, so that its entities are streamed in and out around the focus. It is
+	 * written as a region the next time it is saved, after which <code>config.yml</code> needs
+	 * <code>region: region.layer</code>.
+	 */
+	public void convertToRegion() {
+		if (region == null) {
+			region = RegionStreamer.wrap(new File(REGION_FILENAME), tileLayer, entityLayer);
+		}
+	}
+	
+	public boolean isRegion() {
+		return region != null;
+	}
+	
+	/** Add the line naming a world's region to the end of its config. */
+	static void addRegionToConfig(File folder, String filename) throws IOException {
+		Path config = new File(folder, "config.yml").toPath();
+		byte[] bytes = Files.readAllBytes(config);
+		String line = REGION_KEY + ": " + filename + "\n";
+		if (bytes.length > 0 && bytes[bytes.length - 1] != '\n') {
+			line = "\n" + line;
+		}
+		Files.write(config, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
+	
 	@Override
 	public World getTransposed() {
 		return getTransformed(layer -> {
@@ -319,6 +444,24 @@ public class World implements Playable, Editable {
 			return;
 		}
 		tileLayer.setTileGrid(posGrid, tile);
+		if (baseline != null) {
+			baseline.markTile(tileLayer, posGrid.getX(), posGrid.getY());
+		}
+	}
+	
+	/**
+	 * Flood fill the tile layer from a grid position, replacing the whole region under one lock.
+	 * @return the grid positions that were replaced
+	 * @see TileLayer#floodFill(Vector, Predicate)
+	 */
+	public synchronized List<Vector> wrapGridFloodFill(Vector posGrid, Predicate<Tile> include, UnaryOperator<Tile> replace) {
+		TileLayer tileLayer = getTileLayer();
+		List<Vector> region = tileLayer.floodFill(posGrid, include);
+		tileLayer.setTilesGrid(region, replace);
+		if (baseline != null) {
+			region.forEach(v -> baseline.markTile(tileLayer, v.getX(), v.getY()));
+		}
+		return region;
 	}
 	
 	/** Returns true if bullets can pass over pos. */
@@ -445,6 +588,16 @@ public class World implements Playable, Editable {
 		return directory;
 	}
 	
+	/** @return the bundle this world's layers are read from while it is being loaded, or null */
+	WorldBundle getBundle() {
+		return bundle;
+	}
+	
+	/** @return the state this world was loaded in, which quick-saves record changes against */
+	Baseline getBaseline() {
+		return baseline;
+	}
+	
 	public boolean isOccupied(int x, int y) {
 		return getTileLayer().isOccupied(x, y);
 	}
@@ -0,0 +1,461 @@
+package snorri.world;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import net.sourceforge.yamlbeans.YamlException;
+import snorri.main.Debug;
+import snorri.main.Main;
+import snorri.world.Playable.PlayableType;
+
+/**
+ * A world, or a world graph and all of its worlds, packed into one indexed file that is mapped into memory when it is
+ * played. It holds each <code>config.yml</code> already parsed, the tile and entity layers, and the background images
+ * the configs refer to already decoded, so starting a world reads one file and decodes no YAML or PNG.
+ *
+ * A bundle only stands in for the files it was packed from while they are unchanged. Every entry records the last
+ * modified time and length of its source, and if any source has changed since packing, the whole bundle is ignored and
+ * the loose files are loaded instead. Editing a world never requires repacking it, but the bundle stops helping until
+ * it is.
+ *
+ * A file starts with a header: the magic number, the format version, the length of the index, and a CRC32 checksum of
+ * the index. Each entry in the index has a name, the offset of its data after the index, its length and CRC32
+ * checksum, and the modified time and length of its source. Names are paths relative to the bundled folder, like
+ * <code>tile.layer</code> or <code>room/tile.layer</code> for a world in a graph, or paths in the game directory
+ * starting with <code>/</code>. Configs are stored as a tree of maps, lists and strings, with anything else YAML
+ * built, like a <code>Vector</code>, in Java serialization. Images are stored as their width and height followed by
+ * their ARGB pixels, which is several times larger than a PNG but can be copied straight into a
+ * <code>BufferedImage</code>.
+ *
+ * Run with the world or world graph directories to pack. Region files aren't packed, since they are streamed from
+ * disk while the world is played.
+ */
+public class WorldBundle {
+
+	static final int MAGIC = 0x57424E44; // "WBND"
+	static final int VERSION = 1;
+	public static final String FILENAME = "world.bundle";
+
+	private static final String CONFIG = "config.yml";
+	private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte LIST = 2;
+	private static final byte MAP = 3;
+	private static final byte OBJECT = 4;
+
+	private static class Entry {
+
+		private final long offset;
+		private final int length;
+		private final int checksum;
+		private final long modified;
+		private final long size;
+
+		private Entry(long offset, int length, int checksum, long modified, long size) {
+			this.offset = offset;
+			this.length = length;
+			this.checksum = checksum;
+			this.modified = modified;
+			this.size = size;
+		}
+
+	}
+
+	private final File file;
+	private final ByteBuffer data;
+	private final Map<String, Entry> entries;
+	/** Where names of a world's own files start, for a world in a graph. */
+	private final String prefix;
+
+	private WorldBundle(File file, ByteBuffer data, Map<String, Entry> entries, String prefix) {
+		this.file = file;
+		this.data = data;
+		this.entries = entries;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Open the bundle in a world or world graph's folder.
+	 * @return the bundle, or null if there is none or it is older than the files it was packed from
+	 */
+	public static WorldBundle open(File folder) {
+		File file = new File(folder, FILENAME);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			WorldBundle bundle = read(file);
+			String stale = bundle.findStale(folder);
+			if (stale != null) {
+				Debug.logger.info(file + " is out of date with " + stale + ", so loading loose files.");
+				return null;
+			}
+			return bundle;
+		} catch (IOException e) {
+			Debug.logger.log(Level.WARNING, "Could not open " + file + ", so loading loose files.", e);
+			return null;
+		}
+	}
+
+	private static WorldBundle read(File file) throws IOException {
+		ByteBuffer data;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+			throw new IOException(file + " is not a world bundle.");
+		}
+		int version = data.getInt();
+		if (version > VERSION) {
+			throw new IOException(file + " has world bundle version " + version + ", newer than " + VERSION + ".");
+		}
+		int length = data.getInt();
+		int checksum = data.getInt();
+		if (length < 0 || data.remaining() < length) {
+			throw new IOException(file + " is truncated.");
+		}
+		byte[] index = new byte[length];
+		data.get(index);
+		CRC32 crc = new CRC32();
+		crc.update(index);
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(file + " failed its index checksum.");
+		}
+
+		Map<String, Entry> entries = new HashMap<>();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			Entry entry = new Entry(in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readLong());
+			if (entry.offset < 0 || entry.length < 0 || entry.offset + entry.length > data.remaining()) {
+				throw new IOException(file + " has entry " + name + " past its end.");
+			}
+			entries.put(name, entry);
+		}
+		return new WorldBundle(file, data.slice(), entries, "");
+	}
+
+	/** @return the first source that has changed since this was packed, or null if none have */
+	private String findStale(File folder) {
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			File source = getSource(folder, entry.getKey());
+			if (source.lastModified() != entry.getValue().modified || source.length() != entry.getValue().size) {
+				return source.getPath();
+			}
+		}
+		return null;
+	}
+
+	private static File getSource(File folder, String name) {
+		return name.startsWith("/") ? Main.getFile(name) : new File(folder, name);
+	}
+
+	/** @return the part of a graph's bundle for one of its worlds, or null if that world wasn't packed */
+	public WorldBundle getWorld(String name) {
+		String worldPrefix = prefix + name + "/";
+		if (!entries.containsKey(worldPrefix + CONFIG)) {
+			return null;
+		}
+		return new WorldBundle(file, data, entries, worldPrefix);
+	}
+
+	/** @return the parsed <code>config.yml</code> */
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> getConfig() throws IOException {
+		ByteBuffer buffer = get(CONFIG);
+		if (buffer == null) {
+			throw new IOException(file + " has no " + prefix + CONFIG + ".");
+		}
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return (Map<String, Object>) readValue(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * @param path
+	 * 	a path as written in a world's config, either relative to the world or absolute in the game directory
+	 * @return the contents of the file, or null if it wasn't packed
+	 */
+	ByteBuffer get(String path) throws IOException {
+		String name = getName(path);
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+		ByteBuffer buffer = data.duplicate();
+		buffer.position((int) entry.offset);
+		buffer.limit((int) entry.offset + entry.length);
+		buffer = buffer.slice();
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		if ((int) crc.getValue() != entry.checksum) {
+			throw new IOException(getSource(path) + " failed its checksum.");
+		}
+		return buffer;
+	}
+
+	/** @see #get(String) */
+	byte[] getBytes(String path) throws IOException {
+		ByteBuffer buffer = get(path);
+		if (buffer == null) {
+			return null;
+		}
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/** @return a packed image, or null if it wasn't packed */
+	BufferedImage getImage(String path) throws IOException {
+		ByteBuffer buffer = get(path);
+		if (buffer == null) {
+			return null;
+		}
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		if (width <= 0 || height <= 0 || buffer.remaining() != width * height * Integer.BYTES) {
+			throw new IOException(getSource(path) + " is not a " + width + "x" + height + " image.");
+		}
+		int[] pixels = new int[width * height];
+		buffer.asIntBuffer().get(pixels);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		// Copy into the raster rather than taking its array, which would stop Java2D from accelerating the image.
+		image.getRaster().setDataElements(0, 0, width, height, pixels);
+		return image;
+	}
+
+	/** @return where a file came from, for error messages */
+	String getSource(String path) {
+		return file + "!" + getName(path);
+	}
+
+	private String getName(String path) {
+		return path.startsWith("/") ? path : prefix + path;
+	}
+
+	public static void main(String[] args) {
+		int packed = 0;
+		for (String arg : args) {
+			File folder = new File(arg);
+			try {
+				pack(folder);
+				packed++;
+			} catch (IOException | YamlException e) {
+				Debug.logger.log(Level.SEVERE, "Could not pack " + folder + ".", e);
+			}
+		}
+		Debug.logger.info("Packed " + packed + " of " + args.length + " worlds.");
+	}
+
+	/** Pack a world or world graph's folder into a bundle inside it, replacing any bundle already there. */
+	public static void pack(File folder) throws IOException, YamlException {
+		Map<String, File> sources = new LinkedHashMap<>();
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+
+		Map<String, Object> yaml = Playable.getConfig(folder);
+		PlayableType type = PlayableType.valueOf((String) yaml.get("type"));
+		if (type == PlayableType.WORLD_GRAPH) {
+			add(sources, contents, CONFIG, new File(folder, CONFIG), encodeConfig(yaml));
+			for (File world : folder.listFiles(File::isDirectory)) {
+				if (new File(world, CONFIG).exists()) {
+					addWorld(sources, contents, world.getName() + "/", world, Playable.getConfig(world));
+				}
+			}
+		} else {
+			addWorld(sources, contents, "", folder, yaml);
+		}
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(index);
+		out.writeInt(contents.size());
+		long offset = 0;
+		for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+			File source = sources.get(entry.getKey());
+			out.writeUTF(entry.getKey());
+			out.writeLong(offset);
+			out.writeInt(entry.getValue().length);
+			out.writeInt(checksum(entry.getValue()));
+			out.writeLong(source.lastModified());
+			out.writeLong(source.length());
+			offset += entry.getValue().length;
+		}
+		out.flush();
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(index.size()).putInt(checksum(index.toByteArray()));
+
+		File file = new File(folder, FILENAME);
+		File tmp = new File(folder, FILENAME + ".tmp");
+		try (OutputStream stream = new FileOutputStream(tmp)) {
+			stream.write(header.array());
+			index.writeTo(stream);
+			for (byte[] bytes : contents.values()) {
+				stream.write(bytes);
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Debug.logger.info("Packed " + contents.size() + " files from " + folder + " into " + file + " ("
+				+ file.length() + " bytes).");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addWorld(Map<String, File> sources, Map<String, byte[]> contents, String prefix, File folder,
+			Map<String, Object> yaml) throws IOException {
+		add(sources, contents, prefix + CONFIG, new File(folder, CONFIG), encodeConfig(yaml));
+		List<Map<String, Object>> layers = (List<Map<String, Object>>) yaml.get("layers");
+		if (layers == null) {
+			return;
+		}
+		boolean region = yaml.get(World.REGION_KEY) != null;
+		for (Map<String, Object> params : layers) {
+			String path = (String) params.get("path");
+			if (path == null || region && !Layer.LayerType.BACKGROUND.name().equals(params.get("type"))) {
+				continue;
+			}
+			String name = path.startsWith("/") ? path : prefix + path;
+			File source = path.startsWith("/") ? Main.getFile(path) : new File(folder, path);
+			if (!source.exists() || contents.containsKey(name)) {
+				continue;
+			}
+			if (Layer.LayerType.BACKGROUND.name().equals(params.get("type"))) {
+				byte[] image = encodeImage(source);
+				if (image != null) {
+					add(sources, contents, name, source, image);
+				}
+			} else {
+				add(sources, contents, name, source, Files.readAllBytes(source.toPath()));
+			}
+		}
+	}
+
+	private static void add(Map<String, File> sources, Map<String, byte[]> contents, String name, File source,
+			byte[] bytes) {
+		sources.put(name, source);
+		contents.put(name, bytes);
+	}
+
+	/** @return the image's size and pixels, or null if it can't be read */
+	private static byte[] encodeImage(File source) throws IOException {
+		BufferedImage image = ImageIO.read(source);
+		if (image == null) {
+			Debug.logger.warning("Could not read " + source + ", so leaving it out of the bundle.");
+			return null;
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + width * height * Integer.BYTES);
+		buffer.putInt(width).putInt(height);
+		buffer.asIntBuffer().put(image.getRGB(0, 0, width, height, null, 0, width));
+		return buffer.array();
+	}
+
+	private static byte[] encodeConfig(Map<String, Object> yaml) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeValue(out, yaml);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			out.writeUTF((String) value);
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (Object element : list) {
+				writeValue(out, element);
+			}
+		} else if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		} else if (value instanceof Serializable) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream object = new ObjectOutputStream(bytes)) {
+				object.writeObject(value);
+			}
+			out.writeByte(OBJECT);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		} else {
+			throw new IOException("Can't pack a config holding a " + value.getClass().getSimpleName() + ".");
+		}
+	}
+
+	private Object readValue(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return in.readUTF();
+		case LIST:
+			int length = in.readInt();
+			List<Object> list = new ArrayList<>(length);
+			for (int i = 0; i < length; i++) {
+				list.add(readValue(in));
+			}
+			return list;
+		case MAP:
+			int size = in.readInt();
+			Map<Object, Object> map = new HashMap<>();
+			for (int i = 0; i < size; i++) {
+				map.put(readValue(in), readValue(in));
+			}
+			return map;
+		case OBJECT:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			try (ObjectInputStream object = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return object.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(getSource(CONFIG) + " holds a value of a removed class.", e);
+			}
+		default:
+			throw new IOException(getSource(CONFIG) + " has a value of unknown kind " + tag + ".");
+		}
+	}
+
+	private static int checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return (int) crc.getValue();
+	}
+
+}
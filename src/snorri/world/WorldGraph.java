@@ -30,30 +30,50 @@ import snorri.windows.FocusedWindow;
 public class WorldGraph implements Playable {
 	
 	private String path;
+	private File directory;
 	
 	private Map<String, World> worlds;
 	private World current;
 	
 	private Player player;
+	/** The bundle worlds are read from while this is being loaded, if there is one. */
+	private WorldBundle bundle;
 	
 	public WorldGraph(File folder, Player p) throws FileNotFoundException, IOException, YamlException {		
+		this(folder, p, null, null);
+	}
+	
+	/**
+	 * @param yaml
+	 * 	the parsed config, or null to parse it
+	 * @param bundle
+	 * 	the bundle to read the worlds from, or null to read the loose files
+	 */
+	public WorldGraph(File folder, Player p, Map<String, Object> yaml, WorldBundle bundle) throws IOException, YamlException {
 		player = p; // arbitrary player constructed in case world is playerless
-		load(folder);
+		this.bundle = bundle;
+		try {
+			load(folder, yaml);
+		} finally {
+			this.bundle = null;
+		}
 	}
 	
 	@Override @SuppressWarnings("unchecked")
 	public void load(File folder, Map<String, Object> yaml) throws IOException, YamlException {
 		
 		path = folder.getName();
+		directory = folder;
 				
 		if (yaml == null) { // if config.yml hasn't already been parsed, parse it
-			yaml = Playable.getConfig(folder, PlayableType.WORLD_GRAPH);
+			yaml = bundle != null ? bundle.getConfig() : Playable.getConfig(folder, PlayableType.WORLD_GRAPH);
 		}
 				
 		File[] files = folder.listFiles(File::isDirectory);
 		worlds = new HashMap<String, World>();
 		for (File file : files) {
-			World world = new World(file, player);
+			// Worlds added since the bundle was packed are loaded from their loose files.
+			World world = new World(file, player, null, bundle == null ? null : bundle.getWorld(file.getName()));
 			world.setUniverse(this);
 			worlds.put(file.getName(), world);
 		}
@@ -189,6 +209,22 @@ public class WorldGraph implements Playable {
 	public World getCurrentWorld() {
 		return current;
 	}
+	
+	/** @return the world in the folder of this graph with some name, or null */
+	public World getWorld(String name) {
+		return worlds.get(name);
+	}
+	
+	/** Get the directory from which this WorldGraph was loaded. */
+	public File getDirectory() {
+		return directory;
+	}
+	
+	/** Make a world of this graph the current one, with the player already in it, like after a quick-load. */
+	public void enter(World world) {
+		setCurrentWorld(world);
+		player = computeFocus();
+	}
 
 	@Override
 	public Player computeFocus() {
@@ -0,0 +1,135 @@
+package tests.effects;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import snorri.effects.SmartBlurFilter;
+
+class SmartBlurFilterTest {
+	
+	private static final int WIDTH = 137;
+	private static final int HEIGHT = 103;
+	
+	@Test
+	void testTranslucentIsCloseToConvolveOp() {
+		assertCloseTo(randomImage(BufferedImage.TYPE_INT_ARGB, 1));
+	}
+	
+	@Test
+	void testNearlyTransparentIsCloseToConvolveOp() {
+		BufferedImage image = randomImage(BufferedImage.TYPE_INT_ARGB, 2);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, image.getRGB(x, y) & 0x03ffffff);
+			}
+		}
+		assertCloseTo(image);
+	}
+	
+	@Test
+	void testOpaqueIsCloseToConvolveOp() {
+		assertCloseTo(randomImage(BufferedImage.TYPE_INT_RGB, 3));
+	}
+	
+	private static BufferedImage randomImage(int type, long seed) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * The RMS error of each region is computed in a different order than it was, so a pixel whose RMS lands right on
+	 * a rounding boundary can be off by one. Anything more means the blur itself differs.
+	 */
+	private static void assertCloseTo(BufferedImage image) {
+		int[] expected = getPixels(convolveOpFilter(copy(image)));
+		int[] actual = getPixels(new SmartBlurFilter().filter(copy(image)));
+		int different = 0;
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] == actual[i]) {
+				continue;
+			}
+			different++;
+			for (int shift = 0; shift < 32; shift += 8) {
+				assert Math.abs(((expected[i] >>> shift) & 255) - ((actual[i] >>> shift) & 255)) <= 1;
+			}
+		}
+		assert different <= expected.length / 1000;
+	}
+	
+	private static BufferedImage copy(BufferedImage image) {
+		BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+		copy.setRGB(0, 0, WIDTH, HEIGHT, getPixels(image), 0, WIDTH);
+		return copy;
+	}
+	
+	private static int[] getPixels(BufferedImage image) {
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+	
+	/** The filter as it was written with <code>ConvolveOp</code> and a <code>getSubimage</code> per pixel. */
+	private static BufferedImage convolveOpFilter(BufferedImage image) {
+		float[] kernel = new float[81];
+		Arrays.fill(kernel, 1f / 81);
+		ConvolveOp convolver = new ConvolveOp(new Kernel(9, 9, kernel), ConvolveOp.EDGE_NO_OP, null);
+		
+		BufferedImage target = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+		Graphics g = target.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		
+		int w = target.getWidth();
+		int h = target.getHeight();
+		int[] pixels = image.getRGB(0, 0, w, h, null, 0, w);
+		target = convolver.filter(target, image);
+		int[] blurryPixels = target.getRGB(0, 0, w, h, null, 0, w);
+		
+		SmartBlurFilter filter = new SmartBlurFilter();
+		for (int i = 0; i < pixels.length; i++) {
+			if (i % w > w - 5 || i / w > h - 5) {
+				continue;
+			}
+			int[] sample = image.getSubimage(i % w, i / w, 5, 5).getRGB(0, 0, 5, 5, null, 0, 5);
+			double amt = filter.getLerpAmount(rmsError(sample), 10);
+			pixels[i] = lerpPixel(filter, blurryPixels[i], pixels[i], amt);
+		}
+		
+		image.setRGB(0, 0, w, h, pixels, 0, w);
+		return image;
+	}
+	
+	private static double rmsError(int[] pixels) {
+		double ave = 0;
+		for (int pixel : pixels) {
+			ave += (pixel >> 8) & 255;
+		}
+		ave /= pixels.length;
+		double accumulator = 0;
+		for (int pixel : pixels) {
+			double diff = ((pixel >> 8) & 255) - ave;
+			accumulator += diff * diff;
+		}
+		return Math.sqrt(accumulator / pixels.length);
+	}
+	
+	private static int lerpPixel(SmartBlurFilter filter, int oldPixel, int newPixel, double amt) {
+		int pixel = 0;
+		for (int shift = 0; shift < 24; shift += 8) {
+			int channel = (int) filter.lerp((oldPixel >> shift) & 255, (newPixel >> shift) & 255, amt) & 255;
+			pixel |= channel << shift;
+		}
+		return pixel;
+	}
+	
+}
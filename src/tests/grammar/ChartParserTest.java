@@ -1,9 +1,12 @@
 package tests.grammar;
 
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Test;
 
 import snorri.grammar.ChartParser;
 import snorri.grammar.DefaultLexicon;
+import snorri.grammar.Tokens;
 import snorri.semantics.commands.Command;
 
 class ChartParserTest {
@@ -36,4 +39,46 @@ class ChartParserTest {
 		assert cmd != null;
 	}
 
+	@Test
+	void testCachedParseIsShared() {
+		Command cmd1 = ChartParser.parseText("Sm r st");
+		Command cmd2 = ChartParser.parseText("Sm  r st.");
+		assert cmd1 != null && cmd1 == cmd2;
+	}
+
+	@Test
+	void testIncrementalParse() {
+		ChartParser parser = new ChartParser();
+		for (String token : ChartParser.tokenize("bm AND wpi OR")) {
+			assert parser.push(token);
+		}
+		assert !parser.isGrammatical();
+		assert parser.push("Sm");
+		assert parser.isGrammatical();
+		parser.pop();
+		parser.pop();
+		assert parser.isGrammatical();
+		assert !parser.push("foo");
+		assert parser.getTokens().size() == 3;
+	}
+
+	@Test
+	void testLongChainOfConnectives() {
+		ChartParser parser = new ChartParser();
+		parser.push("bm");
+		for (int i = 0; i < 20; i++) {
+			parser.push(i % 2 == 0 ? "AND" : "OR");
+			parser.push("wpi");
+		}
+		assert parser.isGrammatical();
+	}
+
+	@Test
+	void testTokenize() {
+		Tokens tokens = Tokens.tokenize(" bm=wpi  fo.o.");
+		assert tokens.getWords().equals(Arrays.asList("bm", "wpi", "foo"));
+		assert tokens.getId(0) == DefaultLexicon.getId("bm") && tokens.getId(0) != DefaultLexicon.UNKNOWN;
+		assert tokens.getFirstUnknown() == 2 && tokens.getOffset(2) == 9;
+	}
+
 }